@@ -0,0 +1,136 @@
+package com.marksofgracecooldown;
+
+import java.awt.Polygon;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import net.runelite.api.Client;
+import net.runelite.api.MenuEntry;
+import net.runelite.api.Player;
+import net.runelite.api.Point;
+import net.runelite.api.TileObject;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.LocalPoint;
+import net.runelite.client.config.Notification;
+
+/**
+ * Proxy-backed stand-ins for the RuneLite API objects the benchmarks touch.
+ * <p>
+ * Return values are boxed once up front so the proxies themselves add no allocation
+ * to the B/op figures reported by the gc profiler.
+ */
+final class BenchmarkFixtures
+{
+	static final LocalPoint COURSE_END = new LocalPoint(6000, 6000, -1);
+
+	private BenchmarkFixtures()
+	{
+	}
+
+	static MarksOfGraceCDConfig config(MarksOfGraceCDConfig.SwapLeftClickMode swapMode,
+		MarksOfGraceCDConfig.HighlightClickBoxesMode highlightMode)
+	{
+		return new MarksOfGraceCDConfig()
+		{
+			@Override
+			public Notification notifyMarksOfGraceCD()
+			{
+				return Notification.OFF;
+			}
+
+			@Override
+			public SwapLeftClickMode swapLeftClickMode()
+			{
+				return swapMode;
+			}
+
+			@Override
+			public HighlightClickBoxesMode highlightClickBoxesMode()
+			{
+				return highlightMode;
+			}
+
+			@Override
+			public boolean showDebugValues()
+			{
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * A plugin standing on Canifis with an active cooldown that expires in {@code secondsLeft}.
+	 */
+	static MarksOfGraceCDPlugin pluginOnCooldown(MarksOfGraceCDConfig config, int secondsLeft)
+	{
+		MarksOfGraceCDPlugin plugin = new MarksOfGraceCDPlugin();
+		plugin.setConfig(config);
+		plugin.currentCourse = Courses.CANIFIS;
+		plugin.isOnCooldown = true;
+		long now = plugin.currentTimeMillis();
+		plugin.lastCompleteTimeMillis = now - (3 * MarksOfGraceCDPlugin.MILLIS_PER_MINUTE) + secondsLeft * 1000L;
+		plugin.lastCompleteMarkTimeMillis = plugin.lastCompleteTimeMillis;
+		plugin.courseStartTimeMillis = now;
+		plugin.setLastWorldPing(40);
+		return plugin;
+	}
+
+	static Client client()
+	{
+		Map<String, Object> values = new HashMap<>();
+		values.put("getLocalPlayer", stub(Player.class, Map.of("getLocalLocation", COURSE_END)));
+		values.put("getTopLevelWorldView", stub(WorldView.class, Map.of("getPlane", 0)));
+		values.put("getMouseCanvasPosition", new Point(100, 100));
+		// A fixed camera and viewport, so the clickbox overlay reuses its projected shape
+		values.put("getCameraX", 6400);
+		values.put("getCameraY", 6400);
+		values.put("getCameraZ", -800);
+		values.put("getCameraPitch", 256);
+		values.put("getCameraYaw", 1024);
+		values.put("getScale", 512);
+		values.put("getViewportXOffset", 4);
+		values.put("getViewportYOffset", 4);
+		values.put("getViewportWidth", 765);
+		values.put("getViewportHeight", 503);
+		return stub(Client.class, values);
+	}
+
+	static <T extends TileObject> T tileObject(Class<T> type, int id)
+	{
+		return stub(type, Map.of("getId", id));
+	}
+
+	static TileObject finalObstacle(int id)
+	{
+		Polygon clickbox = new Polygon(new int[]{80, 140, 140, 80}, new int[]{80, 80, 140, 140}, 4);
+		return stub(TileObject.class, Map.of(
+			"getId", id,
+			"getPlane", 0,
+			"getLocalLocation", COURSE_END,
+			"getClickbox", clickbox));
+	}
+
+	static MenuEntry menuEntry(int identifier)
+	{
+		return stub(MenuEntry.class, Map.of("getIdentifier", identifier));
+	}
+
+	private static <T> T stub(Class<T> type, Map<String, Object> values)
+	{
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+			(proxy, method, args) ->
+			{
+				switch (method.getName())
+				{
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					case "toString":
+						return type.getSimpleName() + "Stub";
+					default:
+						return values.get(method.getName());
+				}
+			}));
+	}
+}
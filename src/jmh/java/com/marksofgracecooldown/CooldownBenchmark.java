@@ -0,0 +1,55 @@
+package com.marksofgracecooldown;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CooldownBenchmark
+{
+	private MarksOfGraceCDPlugin plugin;
+	private int courseRegionId;
+	private int otherRegionId;
+
+	@Setup
+	public void setUp()
+	{
+		plugin = BenchmarkFixtures.pluginOnCooldown(BenchmarkFixtures.config(
+			MarksOfGraceCDConfig.SwapLeftClickMode.OFF,
+			MarksOfGraceCDConfig.HighlightClickBoxesMode.OFF), 90);
+		plugin.hasReducedCooldown = true;
+		courseRegionId = Courses.ARDOUGNE.getRegionId();
+		otherRegionId = 12850; // Lumbridge
+	}
+
+	@Benchmark
+	public long getCooldownTimestamp()
+	{
+		return plugin.getCooldownTimestamp(true);
+	}
+
+	@Benchmark
+	public Courses getCourse_courseRegion()
+	{
+		return Courses.getCourse(courseRegionId);
+	}
+
+	@Benchmark
+	public Courses getCourse_otherRegion()
+	{
+		return Courses.getCourse(otherRegionId);
+	}
+}
@@ -0,0 +1,63 @@
+package com.marksofgracecooldown;
+
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.events.MenuEntryAdded;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The menu hook runs for every menu entry the client builds, i.e. many times per frame while
+ * the mouse moves over the scene. Measures both an unrelated entry and the final obstacle.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MenuEntryBenchmark
+{
+	private static final int UNRELATED_OBJECT_ID = 1276;
+
+	private MarksOfGraceCDPlugin plugin;
+	private int finalObstacleId;
+	private MenuEntryAdded finalObstacleEntry;
+	private MenuEntryAdded unrelatedEntry;
+
+	@Setup
+	public void setUp()
+	{
+		plugin = BenchmarkFixtures.pluginOnCooldown(BenchmarkFixtures.config(
+			MarksOfGraceCDConfig.SwapLeftClickMode.WHEN_CANNOT_COMPLETE_LAP,
+			MarksOfGraceCDConfig.HighlightClickBoxesMode.OFF), 120);
+		finalObstacleId = Courses.CANIFIS.getLastObstacleIds()[0];
+		finalObstacleEntry = new MenuEntryAdded(BenchmarkFixtures.menuEntry(finalObstacleId));
+		unrelatedEntry = new MenuEntryAdded(BenchmarkFixtures.menuEntry(UNRELATED_OBJECT_ID));
+	}
+
+	@Benchmark
+	public void onMenuEntryAdded_finalObstacle()
+	{
+		plugin.onMenuEntryAdded(finalObstacleEntry);
+	}
+
+	@Benchmark
+	public void onMenuEntryAdded_unrelated()
+	{
+		plugin.onMenuEntryAdded(unrelatedEntry);
+	}
+
+	@Benchmark
+	public boolean shouldDeprioritizeMenuEntry()
+	{
+		return plugin.shouldDeprioritizeMenuEntry(finalObstacleId);
+	}
+}
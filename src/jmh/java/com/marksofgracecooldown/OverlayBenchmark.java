@@ -0,0 +1,70 @@
+package com.marksofgracecooldown;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-frame cost of both overlays while a cooldown is running, with debug lines and
+ * XP highlighting enabled so every branch of the render methods is exercised.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class OverlayBenchmark
+{
+	private BufferedImage canvas;
+	private Graphics2D graphics;
+	private MarksOfGraceCDInfoOverlay infoOverlay;
+	private MarksOfGraceCDClickBoxOverlay clickBoxOverlay;
+
+	@Setup
+	public void setUp()
+	{
+		MarksOfGraceCDConfig config = BenchmarkFixtures.config(
+			MarksOfGraceCDConfig.SwapLeftClickMode.OFF,
+			MarksOfGraceCDConfig.HighlightClickBoxesMode.XP);
+		MarksOfGraceCDPlugin plugin = BenchmarkFixtures.pluginOnCooldown(config, 120);
+		int obstacleId = Courses.CANIFIS.getLastObstacleIds()[0];
+		plugin.getObstacles().add(Courses.CANIFIS, BenchmarkFixtures.finalObstacle(obstacleId));
+
+		infoOverlay = new MarksOfGraceCDInfoOverlay(plugin);
+		clickBoxOverlay = new MarksOfGraceCDClickBoxOverlay(BenchmarkFixtures.client(), plugin);
+
+		canvas = new BufferedImage(765, 503, BufferedImage.TYPE_INT_ARGB);
+		graphics = canvas.createGraphics();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		graphics.dispose();
+	}
+
+	@Benchmark
+	public Dimension infoOverlayRender()
+	{
+		return infoOverlay.render(graphics);
+	}
+
+	@Benchmark
+	public Dimension clickBoxOverlayRender()
+	{
+		return clickBoxOverlay.render(graphics);
+	}
+}
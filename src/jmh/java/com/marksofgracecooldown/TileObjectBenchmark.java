@@ -0,0 +1,75 @@
+package com.marksofgracecooldown;
+
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.GameObject;
+import net.runelite.api.events.GameObjectDespawned;
+import net.runelite.api.events.GameObjectSpawned;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Simulates the object spawn/despawn storm of a region load: a few final obstacles
+ * mixed into a large batch of ordinary scenery.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TileObjectBenchmark
+{
+	private static final int STORM_SIZE = 1024;
+
+	private MarksOfGraceCDPlugin plugin;
+	private GameObjectSpawned[] spawned;
+	private GameObjectDespawned[] despawned;
+
+	@Setup
+	public void setUp()
+	{
+		plugin = new MarksOfGraceCDPlugin();
+		plugin.setConfig(BenchmarkFixtures.config(MarksOfGraceCDConfig.SwapLeftClickMode.OFF,
+			MarksOfGraceCDConfig.HighlightClickBoxesMode.OFF));
+		plugin.currentCourse = Courses.FALADOR;
+
+		int[] lastObstacleIds = Courses.FALADOR.getLastObstacleIds();
+		spawned = new GameObjectSpawned[STORM_SIZE];
+		despawned = new GameObjectDespawned[STORM_SIZE];
+		for (int i = 0; i < STORM_SIZE; i++)
+		{
+			// Roughly one in 256 objects is a final obstacle
+			int id = i % 256 == 0 ? lastObstacleIds[0] : 1000 + i;
+			GameObject object = BenchmarkFixtures.tileObject(GameObject.class, id);
+
+			spawned[i] = new GameObjectSpawned();
+			spawned[i].setGameObject(object);
+			despawned[i] = new GameObjectDespawned();
+			despawned[i].setGameObject(object);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STORM_SIZE * 2)
+	public int spawnDespawnStorm()
+	{
+		for (GameObjectSpawned event : spawned)
+		{
+			plugin.onGameObjectSpawned(event);
+		}
+		for (GameObjectDespawned event : despawned)
+		{
+			plugin.onGameObjectDespawned(event);
+		}
+		return plugin.getObstacles().size();
+	}
+}
@@ -0,0 +1,57 @@
+package com.marksofgracecooldown;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Timer and latency text as the info overlay formats it, from the {@link TimeText} tables versus
+ * the {@code String.format} and concatenation it used before. Compare B/op from the gc profiler.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimeTextBenchmark
+{
+	// Walks through a whole cooldown so the value isn't constant-folded
+	private long seconds;
+	private long millis;
+
+	@Benchmark
+	public String minutesSeconds_table()
+	{
+		seconds = (seconds + 1) % 180;
+		return TimeText.minutesSeconds(seconds);
+	}
+
+	@Benchmark
+	public String minutesSeconds_format()
+	{
+		seconds = (seconds + 1) % 180;
+		return String.format("%d:%02d", (seconds % 3600) / 60, seconds % 60);
+	}
+
+	@Benchmark
+	public String signedMillis_table()
+	{
+		millis = (millis + 7) % 400 - 200;
+		return TimeText.signedMillis(millis);
+	}
+
+	@Benchmark
+	public String signedMillis_concat()
+	{
+		millis = (millis + 7) % 400 - 200;
+		return (millis >= 0 ? "+" : "") + millis + "ms";
+	}
+}
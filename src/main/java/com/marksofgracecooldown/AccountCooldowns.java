@@ -0,0 +1,68 @@
+package com.marksofgracecooldown;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Running cooldowns of the accounts played in this client, keyed by account hash.
+ * <p>
+ * The plugin only tracks the logged in account in its own fields; each cooldown that starts is also
+ * recorded here, so logging into another account and back restores its timer. The map is access
+ * ordered and bounded to {@link #MAX_ACCOUNTS}, dropping the account played least recently. Written
+ * on the client thread and copied for persisting on the background scheduler.
+ */
+final class AccountCooldowns
+{
+	static final int MAX_ACCOUNTS = 16;
+
+	private final Map<Long, CooldownStateStore.CooldownState> states =
+		new LinkedHashMap<Long, CooldownStateStore.CooldownState>(MAX_ACCOUNTS * 2, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CooldownStateStore.CooldownState> eldest)
+			{
+				return size() > MAX_ACCOUNTS;
+			}
+		};
+
+	synchronized void put(long accountHash, CooldownStateStore.CooldownState state)
+	{
+		states.put(accountHash, state);
+	}
+
+	/**
+	 * @return the account's last cooldown, or null if there is none
+	 */
+	synchronized CooldownStateStore.CooldownState get(long accountHash)
+	{
+		return states.get(accountHash);
+	}
+
+	synchronized void remove(long accountHash)
+	{
+		states.remove(accountHash);
+	}
+
+	synchronized int size()
+	{
+		return states.size();
+	}
+
+	/**
+	 * Replaces the contents with {@code loaded}, e.g. from {@link CooldownStateStore#load()}.
+	 * Iteration order is kept, so the least recently played account comes first.
+	 */
+	synchronized void replaceAll(Map<Long, CooldownStateStore.CooldownState> loaded)
+	{
+		states.clear();
+		states.putAll(loaded);
+	}
+
+	/**
+	 * @return a copy of the cooldowns, least recently played account first
+	 */
+	synchronized Map<Long, CooldownStateStore.CooldownState> snapshot()
+	{
+		return new LinkedHashMap<>(states);
+	}
+}
@@ -0,0 +1,103 @@
+package com.marksofgracecooldown;
+
+import lombok.Getter;
+
+/**
+ * Immutable result of the cooldown computation together with the inputs it was derived from.
+ * <p>
+ * The plugin publishes the latest snapshot through a volatile field. Consumers (game tick,
+ * menu hook, both overlays) only recompute when one of the inputs no longer matches, so the
+ * minute truncation and adjustments run once per mark rather than once per frame.
+ */
+final class CooldownSnapshot
+{
+	static final CooldownSnapshot EMPTY = new CooldownSnapshot(0, false, 0, -1, 0, false, 0, 0);
+
+	@Getter
+	private final long markTimeMillis;
+	private final boolean hasReducedCooldown;
+	private final long ntpOffsetMillis;
+	private final int worldPing;
+	private final int timerBufferSeconds;
+	private final boolean useShortArdougneTimer;
+
+	private final long cooldownTimestamp;
+	private final long reducedCooldownTimestamp;
+
+	private CooldownSnapshot(long markTimeMillis, boolean hasReducedCooldown, long ntpOffsetMillis, int worldPing,
+		int timerBufferSeconds, boolean useShortArdougneTimer, long cooldownTimestamp, long reducedCooldownTimestamp)
+	{
+		this.markTimeMillis = markTimeMillis;
+		this.hasReducedCooldown = hasReducedCooldown;
+		this.ntpOffsetMillis = ntpOffsetMillis;
+		this.worldPing = worldPing;
+		this.timerBufferSeconds = timerBufferSeconds;
+		this.useShortArdougneTimer = useShortArdougneTimer;
+		this.cooldownTimestamp = cooldownTimestamp;
+		this.reducedCooldownTimestamp = reducedCooldownTimestamp;
+	}
+
+	/**
+	 * Returns the local-time cooldown expiry, optionally applying the Ardougne reduced cooldown.
+	 */
+	long getCooldownTimestamp(boolean checkForReduced)
+	{
+		return checkForReduced ? reducedCooldownTimestamp : cooldownTimestamp;
+	}
+
+	boolean matches(long markTimeMillis, boolean hasReducedCooldown, long ntpOffsetMillis, int worldPing,
+		int timerBufferSeconds, boolean useShortArdougneTimer)
+	{
+		return this.markTimeMillis == markTimeMillis
+			&& this.hasReducedCooldown == hasReducedCooldown
+			&& this.ntpOffsetMillis == ntpOffsetMillis
+			&& this.worldPing == worldPing
+			&& this.timerBufferSeconds == timerBufferSeconds
+			&& this.useShortArdougneTimer == useShortArdougneTimer;
+	}
+
+	static CooldownSnapshot compute(long markTimeMillis, boolean hasReducedCooldown, long ntpOffsetMillis, int worldPing,
+		int timerBufferSeconds, boolean useShortArdougneTimer, int cooldownMinutes)
+	{
+		if (markTimeMillis == 0)
+		{
+			return new CooldownSnapshot(0, hasReducedCooldown, ntpOffsetMillis, worldPing,
+				timerBufferSeconds, useShortArdougneTimer, 0, 0);
+		}
+
+		// Apply NTP offset to get the correct server time for minute-truncation
+		// This corrects for users whose system clocks are out of sync
+		long serverTimeMillis = markTimeMillis + ntpOffsetMillis;
+
+		// Minute-truncate using server time to match OSRS game tick timing
+		long minuteTruncatedMillis = serverTimeMillis - (serverTimeMillis % MarksOfGraceCDPlugin.MILLIS_PER_MINUTE);
+		long serverCooldownMillis = minuteTruncatedMillis + (cooldownMinutes * MarksOfGraceCDPlugin.MILLIS_PER_MINUTE);
+
+		// Add user-configured buffer for safety margin
+		long leewayAdjusted = serverCooldownMillis + ((long) timerBufferSeconds * 1000);
+
+		long full = toLocal(leewayAdjusted, markTimeMillis, ntpOffsetMillis, worldPing);
+		// Apply Ardougne elite diary reduced cooldown only when user opted into using the short Ardougne timer
+		long reduced = hasReducedCooldown && useShortArdougneTimer
+			? toLocal(leewayAdjusted - MarksOfGraceCDPlugin.MILLIS_PER_MINUTE, markTimeMillis, ntpOffsetMillis, worldPing)
+			: full;
+
+		return new CooldownSnapshot(markTimeMillis, hasReducedCooldown, ntpOffsetMillis, worldPing,
+			timerBufferSeconds, useShortArdougneTimer, full, reduced);
+	}
+
+	private static long toLocal(long serverCooldownMillis, long markTimeMillis, long ntpOffsetMillis, int worldPing)
+	{
+		// Convert back to local time by removing the NTP offset
+		long localCooldownMillis = serverCooldownMillis - ntpOffsetMillis;
+
+		// If we have a recent ping to the world, approximate one-way delay and subtract it
+		if (worldPing > 0)
+		{
+			localCooldownMillis -= worldPing / 2L;
+		}
+
+		// Safety: don't return a timestamp earlier than the recorded completion time
+		return Math.max(localCooldownMillis, markTimeMillis);
+	}
+}
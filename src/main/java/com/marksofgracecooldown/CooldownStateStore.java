@@ -0,0 +1,190 @@
+package com.marksofgracecooldown;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the active cooldown of each account on disk so it survives a client restart, crash or plugin
+ * toggle.
+ * <p>
+ * The snapshot is a few bytes per account written to a temporary file, forced to disk and renamed
+ * over the previous one, so a crash mid-write leaves either the old or the new snapshot and never a
+ * torn one. Saving does blocking I/O and belongs on the background scheduler.
+ * <p>
+ * Several clients can share the file, each knowing only the accounts it has played. A save therefore
+ * holds a lock file, re-reads the snapshot and merges into it by account, so one client never erases
+ * another client's cooldowns.
+ */
+@Slf4j
+final class CooldownStateStore
+{
+	private static final int MAGIC = 0x4d4f4743; // "MOGC"
+	// 2: one entry per account hash
+	private static final int VERSION = 2;
+	// More entries than this means the file is corrupt
+	private static final int MAX_ENTRIES = 1024;
+
+	// File locks are held per process, and overlapping ones from the same process throw, so stores
+	// in this process save one at a time
+	private static final Object PROCESS_LOCK = new Object();
+
+	private final Path file;
+	private final Path lockFile;
+
+	CooldownStateStore(File file)
+	{
+		this.file = file.toPath();
+		this.lockFile = this.file.resolveSibling(this.file.getFileName() + ".lock");
+	}
+
+	/**
+	 * Merges {@code states}, keyed by account hash, into the snapshot on disk. For an account in both,
+	 * the cooldown with the later mark wins; accounts only on disk are kept. Concurrent saves from
+	 * this and other clients are serialized, so pass a fresh copy taken when the save runs.
+	 */
+	void save(Map<Long, CooldownState> states) throws IOException
+	{
+		Files.createDirectories(file.getParent());
+		synchronized (PROCESS_LOCK)
+		{
+			try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				FileLock ignored = channel.lock())
+			{
+				Map<Long, CooldownState> merged = load();
+				for (Map.Entry<Long, CooldownState> entry : states.entrySet())
+				{
+					CooldownState saved = merged.get(entry.getKey());
+					if (saved == null || saved.getMarkTimeMillis() <= entry.getValue().getMarkTimeMillis())
+					{
+						// Re-inserted so the accounts this client played come last, as most recent
+						merged.remove(entry.getKey());
+						merged.put(entry.getKey(), entry.getValue());
+					}
+				}
+				Iterator<Long> eldest = merged.keySet().iterator();
+				while (merged.size() > MAX_ENTRIES)
+				{
+					eldest.next();
+					eldest.remove();
+				}
+				write(merged);
+			}
+		}
+	}
+
+	private void write(Map<Long, CooldownState> states) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + states.size() * 32);
+		try (DataOutputStream out = new DataOutputStream(bytes))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(states.size());
+			for (Map.Entry<Long, CooldownState> entry : states.entrySet())
+			{
+				CooldownState state = entry.getValue();
+				out.writeLong(entry.getKey());
+				// Stored by name so reordering Courses doesn't misread old snapshots
+				out.writeUTF(state.getCourse().name());
+				out.writeLong(state.getMarkTimeMillis());
+				out.writeBoolean(state.isReducedCooldown());
+			}
+		}
+
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.write(temp, bytes.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+			StandardOpenOption.WRITE, StandardOpenOption.DSYNC);
+		try
+		{
+			Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException e)
+		{
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * @return the saved cooldowns by account hash in the order they were saved; empty if there are
+	 * none or the snapshot can't be read
+	 */
+	Map<Long, CooldownState> load()
+	{
+		Map<Long, CooldownState> states = new LinkedHashMap<>();
+		try (InputStream stream = Files.newInputStream(file); DataInputStream in = new DataInputStream(stream))
+		{
+			// Snapshots from before per-account tracking don't say whose cooldown they hold
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+			{
+				return states;
+			}
+			int count = in.readInt();
+			if (count < 0 || count > MAX_ENTRIES)
+			{
+				throw new IOException("bad entry count " + count);
+			}
+			for (int i = 0; i < count; i++)
+			{
+				long accountHash = in.readLong();
+				String courseName = in.readUTF();
+				long markTime = in.readLong();
+				boolean reduced = in.readBoolean();
+				Courses course = Courses.valueOf(courseName);
+				states.put(accountHash, new CooldownState(course, markTime, reduced));
+			}
+			return states;
+		}
+		catch (NoSuchFileException e)
+		{
+			return states;
+		}
+		catch (IOException | IllegalArgumentException e)
+		{
+			log.debug("Ignoring unreadable cooldown state {}: {}", file, e.toString());
+			return new LinkedHashMap<>();
+		}
+	}
+
+	@Getter
+	static final class CooldownState
+	{
+		private final Courses course;
+		private final long markTimeMillis;
+		private final boolean reducedCooldown;
+
+		CooldownState(Courses course, long markTimeMillis, boolean reducedCooldown)
+		{
+			this.course = course;
+			this.markTimeMillis = markTimeMillis;
+			this.reducedCooldown = reducedCooldown;
+		}
+
+		/**
+		 * Whether a cooldown of {@code cooldownMillis} (including any timer buffer) started at the mark
+		 * time can still be running at {@code nowMillis}. Snapshots from the future (clock went
+		 * backwards) are rejected too.
+		 */
+		boolean isWithinCooldown(long nowMillis, long cooldownMillis)
+		{
+			return markTimeMillis > 0 && markTimeMillis <= nowMillis
+				&& nowMillis - markTimeMillis < cooldownMillis;
+		}
+	}
+}
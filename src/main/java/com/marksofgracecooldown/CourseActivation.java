@@ -0,0 +1,152 @@
+package com.marksofgracecooldown;
+
+import net.runelite.api.events.DecorativeObjectDespawned;
+import net.runelite.api.events.DecorativeObjectSpawned;
+import net.runelite.api.events.GameObjectDespawned;
+import net.runelite.api.events.GameObjectSpawned;
+import net.runelite.api.events.GroundObjectDespawned;
+import net.runelite.api.events.GroundObjectSpawned;
+import net.runelite.api.events.ItemSpawned;
+import net.runelite.api.events.MenuEntryAdded;
+import net.runelite.api.events.WallObjectDespawned;
+import net.runelite.api.events.WallObjectSpawned;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayManager;
+
+/**
+ * Keeps the plugin's high-volume subscribers (object spawns and despawns, menu entries, item
+ * spawns) and the clickbox overlay registered only while the loaded scene contains an agility
+ * course.
+ * <p>
+ * The scene's regions are checked when a region load starts, before its objects are spawned, so
+ * a course's obstacles are always seen. Away from courses none of these events reach the plugin.
+ * While active this object is itself the subscriber and forwards to the plugin.
+ */
+final class CourseActivation
+{
+	private final MarksOfGraceCDPlugin plugin;
+	private final EventBus eventBus;
+	private final OverlayManager overlayManager;
+	private final Overlay clickBoxOverlay;
+	private boolean active;
+
+	CourseActivation(MarksOfGraceCDPlugin plugin, EventBus eventBus, OverlayManager overlayManager,
+		Overlay clickBoxOverlay)
+	{
+		this.plugin = plugin;
+		this.eventBus = eventBus;
+		this.overlayManager = overlayManager;
+		this.clickBoxOverlay = clickBoxOverlay;
+	}
+
+	/**
+	 * Activates if any of the scene's regions is a course region, otherwise deactivates.
+	 */
+	void update(int[] mapRegions)
+	{
+		setActive(containsCourseRegion(mapRegions));
+	}
+
+	synchronized void setActive(boolean active)
+	{
+		if (active == this.active)
+		{
+			return;
+		}
+
+		this.active = active;
+		if (active)
+		{
+			eventBus.register(this);
+			overlayManager.add(clickBoxOverlay);
+		}
+		else
+		{
+			eventBus.unregister(this);
+			overlayManager.remove(clickBoxOverlay);
+		}
+	}
+
+	synchronized boolean isActive()
+	{
+		return active;
+	}
+
+	static boolean containsCourseRegion(int[] mapRegions)
+	{
+		if (mapRegions == null)
+		{
+			return false;
+		}
+		for (int region : mapRegions)
+		{
+			if (Courses.getCourse(region) != null)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Subscribe
+	public void onItemSpawned(ItemSpawned event)
+	{
+		plugin.onItemSpawned(event);
+	}
+
+	@Subscribe
+	public void onMenuEntryAdded(MenuEntryAdded event)
+	{
+		plugin.onMenuEntryAdded(event);
+	}
+
+	@Subscribe
+	public void onGameObjectSpawned(GameObjectSpawned event)
+	{
+		plugin.onGameObjectSpawned(event);
+	}
+
+	@Subscribe
+	public void onGameObjectDespawned(GameObjectDespawned event)
+	{
+		plugin.onGameObjectDespawned(event);
+	}
+
+	@Subscribe
+	public void onGroundObjectSpawned(GroundObjectSpawned event)
+	{
+		plugin.onGroundObjectSpawned(event);
+	}
+
+	@Subscribe
+	public void onGroundObjectDespawned(GroundObjectDespawned event)
+	{
+		plugin.onGroundObjectDespawned(event);
+	}
+
+	@Subscribe
+	public void onWallObjectSpawned(WallObjectSpawned event)
+	{
+		plugin.onWallObjectSpawned(event);
+	}
+
+	@Subscribe
+	public void onWallObjectDespawned(WallObjectDespawned event)
+	{
+		plugin.onWallObjectDespawned(event);
+	}
+
+	@Subscribe
+	public void onDecorativeObjectSpawned(DecorativeObjectSpawned event)
+	{
+		plugin.onDecorativeObjectSpawned(event);
+	}
+
+	@Subscribe
+	public void onDecorativeObjectDespawned(DecorativeObjectDespawned event)
+	{
+		plugin.onDecorativeObjectDespawned(event);
+	}
+}
@@ -3,9 +3,7 @@ package com.marksofgracecooldown;
 import com.google.common.collect.ImmutableMap;
 import java.util.Arrays;
 import java.util.Map;
-import java.util.Set;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 import lombok.Getter;
 import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.gameval.ObjectID;
@@ -36,9 +34,11 @@ enum Courses
 	WEREWOLF(new int[]{ObjectID.WEREWOLF_SLIDE_CENTER, ObjectID.WEREWOLF_SLIDE_SIDE, ObjectID.WEREWOLF_SLIDE_SIDE_MIRROR}, 14234, 38, new WorldPoint(3528, 9873, 0));
 
 
-	static final Set<Integer> allLastObstacleIds;
 	private static final Map<Integer, Courses> coursesByRegion;
-	private static final Map<Integer, Courses> coursesByLastObstacleId;
+	// Primitive index so the per-object spawn/despawn path never boxes the object id
+	private static final IntCourseIndex coursesByLastObstacleId;
+	// Finish tiles packed by packTile, so lap detection is one probe with no WorldPoint compares
+	private static final IntCourseIndex coursesByFinishTile;
 
 	static
 	{
@@ -54,25 +54,35 @@ enum Courses
 
 	static
 	{
-		allLastObstacleIds = Arrays.stream(values())
-			.flatMapToInt(c -> Arrays.stream(c.getLastObstacleIds()))
-			.boxed()
-			.collect(Collectors.toSet());
+		int obstacleCount = Arrays.stream(values()).mapToInt(c -> c.lastObstacleIds.length).sum();
+		IntCourseIndex index = new IntCourseIndex(obstacleCount);
+
+		for (Courses course : values())
+		{
+			for (int obstacleId : course.getLastObstacleIds())
+			{
+				index.put(obstacleId, course);
+			}
+		}
+
+		coursesByLastObstacleId = index;
 	}
 
 	static
 	{
-		ImmutableMap.Builder<Integer, Courses> builder = new ImmutableMap.Builder<>();
+		int tileCount = Arrays.stream(values()).mapToInt(c -> c.courseEndWorldPoints.length).sum();
+		IntCourseIndex index = new IntCourseIndex(tileCount);
 
+		// A finish area is indexed as the tiles it covers (Falador's is four tiles)
 		for (Courses course : values())
 		{
-			for (int obstacleId : course.getLastObstacleIds())
+			for (WorldPoint tile : course.getCourseEndWorldPoints())
 			{
-				builder.put(obstacleId, course);
+				index.put(packTile(tile.getX(), tile.getY(), tile.getPlane()), course);
 			}
 		}
 
-		coursesByLastObstacleId = builder.build();
+		coursesByFinishTile = index;
 	}
 
 	@Getter
@@ -108,11 +118,33 @@ enum Courses
 		return coursesByRegion.get(regionId);
 	}
 
+	/**
+	 * Returns the course whose last obstacle has the given object id, or null if the id is not
+	 * a last obstacle. Allocation-free; safe to call for every object spawn.
+	 */
 	static Courses getCourseByLastObstacle(int lastObstacleId)
 	{
 		return coursesByLastObstacleId.get(lastObstacleId);
 	}
 
+	/**
+	 * Returns the course that finishes on the tile packed by {@link #packTile(int, int, int)}, or
+	 * null if it is not a finish tile. Allocation-free; safe to call for every XP drop.
+	 */
+	static Courses getCourseByFinishTile(int packedTile)
+	{
+		return coursesByFinishTile.get(packedTile);
+	}
+
+	/**
+	 * Packs a world tile into an int as {@code plane << 28 | x << 14 | y}; world coordinates fit in
+	 * 14 bits and the plane in 2.
+	 */
+	static int packTile(int x, int y, int plane)
+	{
+		return (plane & 0x3) << 28 | (x & 0x3fff) << 14 | (y & 0x3fff);
+	}
+
 	/**
 	 * Returns the effective optimal time, checking conditionalOptimalTimes in insertion order
 	 * and returning the first match where toggleEnabled.test(key) is true. If none match,
@@ -0,0 +1,91 @@
+package com.marksofgracecooldown;
+
+/**
+ * Open-addressing int -> {@link Courses} lookup table.
+ * <p>
+ * Keys are stored in a primitive array and probed linearly, so a lookup never boxes the key
+ * and never allocates. A miss costs a single probe in the common case because the table is
+ * kept at most half full. The index is filled once while the static course data is built and
+ * is only read afterwards, so it is safe to share between threads.
+ */
+final class IntCourseIndex
+{
+	private final int[] keys;
+	private final Courses[] values;
+	private final int mask;
+	private int size;
+
+	IntCourseIndex(int expectedSize)
+	{
+		// Keep the load factor <= 0.5 so misses terminate quickly
+		int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+		keys = new int[capacity];
+		values = new Courses[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Associates the key with the course. Re-putting an existing key replaces its course.
+	 */
+	void put(int key, Courses course)
+	{
+		if (course == null)
+		{
+			throw new IllegalArgumentException("course must not be null");
+		}
+		if ((size + 1) * 2 > keys.length)
+		{
+			throw new IllegalStateException("IntCourseIndex is full, increase expectedSize");
+		}
+
+		int slot = mix(key) & mask;
+		while (values[slot] != null)
+		{
+			if (keys[slot] == key)
+			{
+				values[slot] = course;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		values[slot] = course;
+		size++;
+	}
+
+	/**
+	 * Returns the course for the key, or null if the key is not indexed.
+	 */
+	Courses get(int key)
+	{
+		int slot = mix(key) & mask;
+		Courses course;
+		while ((course = values[slot]) != null)
+		{
+			if (keys[slot] == key)
+			{
+				return course;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	boolean containsKey(int key)
+	{
+		return get(key) != null;
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	// Object ids are mostly small sequential ints; spread them so neighbours don't cluster
+	private static int mix(int key)
+	{
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
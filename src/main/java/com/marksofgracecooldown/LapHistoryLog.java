@@ -0,0 +1,318 @@
+package com.marksofgracecooldown;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fixed-width binary log of lap completions and mark spawns, kept in a memory-mapped ring file.
+ * <p>
+ * The file never grows past its mapped size: once {@link #CAPACITY} records have been written the
+ * oldest ones are overwritten.
+ * <p>
+ * Several clients can have the same file mapped at once. The record count therefore lives only in
+ * the file: records are written under a {@link FileLock} on the header, re-reading the count under
+ * it, so clients interleave their records instead of overwriting each other's slots.
+ * <p>
+ * Appends come from the client thread and never wait for that lock. A record that cannot take it
+ * straight away is queued and written by the next append or by {@link #flush()}, which runs on the
+ * background scheduler, waits for the lock and forces the dirty pages to disk.
+ * <p>
+ * The OS may write dirty pages back in any order, so after a crash the header can count records
+ * whose slots never reached the disk. Each record therefore carries a check of its contents and
+ * its sequence number, and {@link #readAll()} skips records that fail it.
+ * <p>
+ * Layout (little endian): a 16 byte header of magic, version, record size and total records
+ * written, followed by {@link #CAPACITY} records of {@link #RECORD_SIZE} bytes each:
+ * <pre>
+ *   0  long  timestamp (epoch millis, plugin clock)
+ *   8  int   lap duration in ms (0 if unknown or a mark)
+ *  12  byte  record type ({@link #TYPE_LAP} or {@link #TYPE_MARK})
+ *  13  byte  course ordinal
+ *  14  short check of the above and the record's sequence number
+ * </pre>
+ */
+@Slf4j
+final class LapHistoryLog implements Closeable
+{
+	static final int CAPACITY = 1 << 16;
+	static final int RECORD_SIZE = 16;
+	static final byte TYPE_LAP = 0;
+	static final byte TYPE_MARK = 1;
+
+	private static final int MAGIC = 0x4c474f4d; // "MOGL"
+	private static final short VERSION = 2;
+	private static final int HEADER_SIZE = 16;
+	private static final int COUNT_OFFSET = 8;
+	// Records waiting for the lock beyond this are dropped
+	private static final int MAX_PENDING = 1024;
+	// File locks are held per process, and overlapping ones from the same process throw, so
+	// logs in this process take their header lock one at a time
+	private static final ReentrantLock PROCESS_LOCK = new ReentrantLock();
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final AtomicBoolean dirty = new AtomicBoolean();
+	// Records not yet written to the file, oldest first
+	private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+
+	private LapHistoryLog(FileChannel channel, MappedByteBuffer buffer)
+	{
+		this.channel = channel;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Opens or creates the log at {@code file}. A file with an unknown header is started afresh.
+	 */
+	static LapHistoryLog open(File file) throws IOException
+	{
+		File parent = file.getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+		{
+			throw new IOException("could not create " + parent);
+		}
+
+		FileChannel channel = FileChannel.open(file.toPath(),
+			StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+				HEADER_SIZE + (long) CAPACITY * RECORD_SIZE);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			// Another client may be creating the same file
+			PROCESS_LOCK.lock();
+			try (FileLock ignored = channel.lock(0, HEADER_SIZE, false))
+			{
+				if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION
+					|| buffer.getShort(6) != RECORD_SIZE)
+				{
+					buffer.putInt(0, MAGIC);
+					buffer.putShort(4, VERSION);
+					buffer.putShort(6, (short) RECORD_SIZE);
+					buffer.putLong(COUNT_OFFSET, 0);
+				}
+			}
+			finally
+			{
+				PROCESS_LOCK.unlock();
+			}
+			return new LapHistoryLog(channel, buffer);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	void appendLap(Courses course, long timestampMillis, int durationMillis)
+	{
+		append(TYPE_LAP, course, timestampMillis, durationMillis);
+	}
+
+	void appendMark(Courses course, long timestampMillis)
+	{
+		append(TYPE_MARK, course, timestampMillis, 0);
+	}
+
+	private void append(byte type, Courses course, long timestampMillis, int durationMillis)
+	{
+		synchronized (pending)
+		{
+			if (pending.size() >= MAX_PENDING)
+			{
+				log.debug("Dropped lap history record, the file has been locked for too long");
+				return;
+			}
+			pending.add(new Entry(type, course, timestampMillis, Math.max(0, durationMillis)));
+		}
+		writePending(false);
+	}
+
+	/**
+	 * Writes queued records and forces appended records to disk. May wait for other clients, so
+	 * call it from the background scheduler.
+	 */
+	void flush()
+	{
+		writePending(true);
+		if (dirty.getAndSet(false))
+		{
+			buffer.force();
+		}
+	}
+
+	// Writes the queued records if the header lock can be taken; without waiting, a contended
+	// lock leaves them queued
+	private void writePending(boolean wait)
+	{
+		if (wait)
+		{
+			PROCESS_LOCK.lock();
+		}
+		else if (!PROCESS_LOCK.tryLock())
+		{
+			return;
+		}
+
+		try
+		{
+			FileLock lock = wait ? channel.lock(0, HEADER_SIZE, false) : channel.tryLock(0, HEADER_SIZE, false);
+			if (lock == null)
+			{
+				return;
+			}
+
+			try (FileLock ignored = lock)
+			{
+				synchronized (pending)
+				{
+					if (pending.isEmpty())
+					{
+						return;
+					}
+
+					long count = readCount();
+					for (Entry entry; (entry = pending.poll()) != null; count++)
+					{
+						int offset = HEADER_SIZE + (int) (count % CAPACITY) * RECORD_SIZE;
+						buffer.putLong(offset, entry.timestampMillis);
+						buffer.putInt(offset + 8, entry.durationMillis);
+						buffer.put(offset + 12, entry.type);
+						buffer.put(offset + 13, (byte) entry.course.ordinal());
+						buffer.putShort(offset + 14, check(count, entry.timestampMillis, entry.durationMillis,
+							entry.type, entry.course.ordinal()));
+					}
+					buffer.putLong(COUNT_OFFSET, count);
+				}
+			}
+			dirty.set(true);
+		}
+		catch (OverlappingFileLockException e)
+		{
+			// Locked through another channel in this process; the records stay queued
+		}
+		catch (IOException e)
+		{
+			log.debug("Unable to write lap history: {}", e.getMessage());
+		}
+		finally
+		{
+			PROCESS_LOCK.unlock();
+		}
+	}
+
+	/**
+	 * Total records appended over the life of the file by every client, including overwritten ones.
+	 */
+	long getCount()
+	{
+		return readCount();
+	}
+
+	/**
+	 * Returns the retained records that were written completely, oldest first. Queued records are not
+	 * included. Empty if the file could not be locked.
+	 */
+	List<Entry> readAll()
+	{
+		Courses[] courses = Courses.values();
+		PROCESS_LOCK.lock();
+		try (FileLock ignored = channel.lock(0, HEADER_SIZE, true))
+		{
+			long count = readCount();
+			int retained = (int) Math.min(count, CAPACITY);
+			List<Entry> entries = new ArrayList<>(retained);
+			for (long i = count - retained; i < count; i++)
+			{
+				int offset = HEADER_SIZE + (int) (i % CAPACITY) * RECORD_SIZE;
+				long timestampMillis = buffer.getLong(offset);
+				int durationMillis = buffer.getInt(offset + 8);
+				byte type = buffer.get(offset + 12);
+				int courseOrdinal = buffer.get(offset + 13) & 0xff;
+				if (courseOrdinal >= courses.length
+					|| buffer.getShort(offset + 14) != check(i, timestampMillis, durationMillis, type, courseOrdinal))
+				{
+					continue;
+				}
+				entries.add(new Entry(type, courses[courseOrdinal], timestampMillis, durationMillis));
+			}
+			return entries;
+		}
+		catch (IOException | OverlappingFileLockException e)
+		{
+			log.debug("Unable to read lap history: {}", e.getMessage());
+			return new ArrayList<>();
+		}
+		finally
+		{
+			PROCESS_LOCK.unlock();
+		}
+	}
+
+	private long readCount()
+	{
+		return Math.max(0, buffer.getLong(COUNT_OFFSET));
+	}
+
+	// Never 0, so a slot that was never written fails it
+	private static short check(long sequence, long timestampMillis, int durationMillis, byte type, int courseOrdinal)
+	{
+		long hash = sequence * 0x9E3779B97F4A7C15L;
+		hash = (hash ^ timestampMillis) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ ((long) durationMillis << 16 | (type & 0xff) << 8 | courseOrdinal)) * 0x94D049BB133111EBL;
+		hash ^= hash >>> 32;
+		short check = (short) (hash ^ hash >>> 16);
+		return check != 0 ? check : 1;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	@Getter
+	static final class Entry
+	{
+		private final byte type;
+		private final Courses course;
+		private final long timestampMillis;
+		private final int durationMillis;
+
+		Entry(byte type, Courses course, long timestampMillis, int durationMillis)
+		{
+			this.type = type;
+			this.course = course;
+			this.timestampMillis = timestampMillis;
+			this.durationMillis = durationMillis;
+		}
+
+		boolean isLap()
+		{
+			return type == TYPE_LAP;
+		}
+	}
+}
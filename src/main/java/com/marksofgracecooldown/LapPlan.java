@@ -0,0 +1,80 @@
+package com.marksofgracecooldown;
+
+import lombok.Getter;
+
+/**
+ * Lap schedule for the rest of a cooldown, planned from the last lap completion.
+ * <p>
+ * A mark can only spawn on the lap after one completed once the cooldown has expired. With
+ * {@code T} left at the last completion and a lap time of {@code L}, {@code k = floor(T / L)} more
+ * laps still finish before expiry. The last of them should be held at the final obstacle for the
+ * remaining {@code T - kL} and completed at expiry, which starts the next cooldown as early as
+ * possible. When {@code k} is 0 the next lap already finishes after expiry and no waiting is needed.
+ * <p>
+ * Plans are immutable and recomputed on lap completion, when a cooldown starts, and when the expiry
+ * or lap threshold they were made for moves (ping, NTP offset or settings changes). The plan is only
+ * shown in the overlay; the left-click swap compares the time left with the lap threshold directly.
+ */
+@Getter
+final class LapPlan
+{
+	private final Courses course;
+	// cooldown and lap threshold the plan was made for
+	private final long markTimeMillis;
+	private final int thresholdSeconds;
+
+	private final long expiryMillis;
+	private final int lapsRemaining;
+	private final long idleMillis;
+	// when the lap completion that makes the next mark possible is expected
+	private final long projectedMarkMillis;
+
+	private LapPlan(Courses course, long markTimeMillis, int thresholdSeconds, long expiryMillis,
+		int lapsRemaining, long idleMillis, long projectedMarkMillis)
+	{
+		this.course = course;
+		this.markTimeMillis = markTimeMillis;
+		this.thresholdSeconds = thresholdSeconds;
+		this.expiryMillis = expiryMillis;
+		this.lapsRemaining = lapsRemaining;
+		this.idleMillis = idleMillis;
+		this.projectedMarkMillis = projectedMarkMillis;
+	}
+
+	/**
+	 * @param lastLapMillis    time of the last lap completion, where the plan starts
+	 * @param expiryMillis     cooldown expiry from {@link MarksOfGraceCDPlugin#getCooldownTimestamp(boolean)}
+	 * @param thresholdSeconds lap time for the course, from the lap threshold table
+	 */
+	static LapPlan compute(Courses course, long markTimeMillis, long lastLapMillis, long expiryMillis,
+		int thresholdSeconds)
+	{
+		long lapMillis = Math.max(0, thresholdSeconds) * 1000L;
+		long remaining = expiryMillis - lastLapMillis;
+
+		if (remaining <= 0)
+		{
+			// The last completion was already after expiry
+			return new LapPlan(course, markTimeMillis, thresholdSeconds, expiryMillis, 0, 0, lastLapMillis);
+		}
+		if (lapMillis == 0 || remaining < lapMillis)
+		{
+			// The next lap finishes after expiry on its own
+			return new LapPlan(course, markTimeMillis, thresholdSeconds, expiryMillis, 0, 0,
+				lastLapMillis + lapMillis);
+		}
+
+		int laps = (int) (remaining / lapMillis);
+		long idle = remaining - laps * lapMillis;
+		return new LapPlan(course, markTimeMillis, thresholdSeconds, expiryMillis, laps, idle, expiryMillis);
+	}
+
+	/**
+	 * Whether this plan still describes the current cooldown, its expiry, course and lap threshold.
+	 */
+	boolean isFor(Courses course, long markTimeMillis, long expiryMillis, int thresholdSeconds)
+	{
+		return this.course == course && this.markTimeMillis == markTimeMillis
+			&& this.expiryMillis == expiryMillis && this.thresholdSeconds == thresholdSeconds;
+	}
+}
@@ -0,0 +1,85 @@
+package com.marksofgracecooldown;
+
+/**
+ * Effective lap-time thresholds for every course, indexed by {@link Courses#ordinal()}.
+ * <p>
+ * The thresholds only depend on the settings, on whether the player has the Hard Kandarin
+ * diary and, in observed lap time mode, on the recorded lap times. The plugin rebuilds this table
+ * when any of them changes and the menu hook and overlays read a single array element instead of
+ * re-evaluating the course's conditional times.
+ */
+final class LapThresholdTable
+{
+	private static final String SEERS_TELEPORT_TOGGLE = "useSeersTeleport";
+	// Laps needed on a course before its observed percentile replaces the optimal time
+	static final int MIN_OBSERVED_LAPS = 10;
+
+	private final int[] baseOptimalSeconds;
+	private final int[] thresholdSeconds;
+
+	private LapThresholdTable(int[] baseOptimalSeconds, int[] thresholdSeconds)
+	{
+		this.baseOptimalSeconds = baseOptimalSeconds;
+		this.thresholdSeconds = thresholdSeconds;
+	}
+
+	static LapThresholdTable build(MarksOfGraceCDSettings settings, boolean hasHardKandarinDiary)
+	{
+		return build(settings, hasHardKandarinDiary, null);
+	}
+
+	/**
+	 * @param lapTimeStats recorded lap times, used when observed lap time mode is on; may be null
+	 */
+	static LapThresholdTable build(MarksOfGraceCDSettings settings, boolean hasHardKandarinDiary,
+		LapTimeStats lapTimeStats)
+	{
+		boolean observed = settings.useObservedLapTime() && !settings.useCustomLapTime() && lapTimeStats != null;
+		double quantile = Math.max(50, Math.min(99, settings.observedLapPercentile())) / 100.0;
+
+		boolean seersTeleport = settings.useSeersTeleport()
+			&& (settings.assumeHardKandarinDiary() || hasHardKandarinDiary);
+
+		Courses[] courses = Courses.values();
+		int[] base = new int[courses.length];
+		int[] threshold = new int[courses.length];
+		for (Courses course : courses)
+		{
+			int optimal = course.getOptimalTime(key -> seersTeleport && SEERS_TELEPORT_TOGGLE.equals(key));
+			base[course.ordinal()] = optimal;
+
+			// The custom lap time replaces the course time outright; the buffer only applies to course times
+			if (settings.useCustomLapTime())
+			{
+				threshold[course.ordinal()] = Math.max(0, settings.customLapTimeSeconds());
+			}
+			else if (observed && lapTimeStats.getCount(course) >= MIN_OBSERVED_LAPS)
+			{
+				// The percentile already covers the player's spread of lap times, so no buffer on top
+				long millis = lapTimeStats.getPercentileMillis(course, quantile);
+				threshold[course.ordinal()] = (int) ((millis + 999) / 1000);
+			}
+			else
+			{
+				threshold[course.ordinal()] = Math.max(0, optimal + settings.lapTimeBuffer());
+			}
+		}
+		return new LapThresholdTable(base, threshold);
+	}
+
+	/**
+	 * Course optimal time after conditional toggles, before the lap time buffer.
+	 */
+	int getBaseOptimalSeconds(Courses course)
+	{
+		return baseOptimalSeconds[course.ordinal()];
+	}
+
+	/**
+	 * Threshold used to decide between the XP and Wait states.
+	 */
+	int getThresholdSeconds(Courses course)
+	{
+		return thresholdSeconds[course.ordinal()];
+	}
+}
@@ -0,0 +1,94 @@
+package com.marksofgracecooldown;
+
+import java.util.Arrays;
+
+/**
+ * Streaming lap-time distribution per course, used to derive percentiles of observed lap times.
+ * <p>
+ * Each course gets a fixed histogram of {@link #BIN_MILLIS} wide bins covering laps up to
+ * {@link #MAX_LAP_MILLIS}, so memory stays constant however many laps are recorded and a
+ * percentile is exact to within one bin. Laps longer than the range are not a lap anyone ran
+ * but a break taken mid-lap, and are left out rather than skewing the upper percentiles.
+ */
+final class LapTimeStats
+{
+	static final int BIN_MILLIS = 250;
+	static final int MAX_LAP_MILLIS = 5 * 60_000;
+	private static final int BINS = MAX_LAP_MILLIS / BIN_MILLIS;
+
+	private final int[][] histograms = new int[Courses.values().length][BINS];
+	private final int[] counts = new int[Courses.values().length];
+
+	/**
+	 * Adds a lap duration; durations that are unknown (zero or less) or out of range are ignored.
+	 */
+	synchronized void record(Courses course, long durationMillis)
+	{
+		if (durationMillis <= 0 || durationMillis > MAX_LAP_MILLIS)
+		{
+			return;
+		}
+
+		int bin = (int) Math.min(BINS - 1, (durationMillis - 1) / BIN_MILLIS);
+		histograms[course.ordinal()][bin]++;
+		counts[course.ordinal()]++;
+	}
+
+	synchronized int getCount(Courses course)
+	{
+		return counts[course.ordinal()];
+	}
+
+	/**
+	 * Returns the lap time at {@code quantile} (0 to 1), rounded up to the end of its bin so the
+	 * result is never faster than the laps it describes.
+	 *
+	 * @return the lap time in ms, or -1 if no laps were recorded on the course
+	 */
+	synchronized long getPercentileMillis(Courses course, double quantile)
+	{
+		int count = counts[course.ordinal()];
+		if (count == 0)
+		{
+			return -1;
+		}
+
+		// Nearest-rank: the smallest bin whose cumulative count reaches ceil(q * n)
+		long rank = Math.max(1, (long) Math.ceil(quantile * count));
+		int[] histogram = histograms[course.ordinal()];
+		long cumulative = 0;
+		for (int bin = 0; bin < BINS; bin++)
+		{
+			cumulative += histogram[bin];
+			if (cumulative >= rank)
+			{
+				return (bin + 1L) * BIN_MILLIS;
+			}
+		}
+		return MAX_LAP_MILLIS;
+	}
+
+	long getP50Millis(Courses course)
+	{
+		return getPercentileMillis(course, 0.50);
+	}
+
+	long getP90Millis(Courses course)
+	{
+		return getPercentileMillis(course, 0.90);
+	}
+
+	long getP99Millis(Courses course)
+	{
+		return getPercentileMillis(course, 0.99);
+	}
+
+	synchronized void clear()
+	{
+		for (int[] histogram : histograms)
+		{
+			Arrays.fill(histogram, 0);
+		}
+		Arrays.fill(counts, 0);
+	}
+}
@@ -3,10 +3,12 @@ package com.marksofgracecooldown;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.Shape;
-import java.time.Instant;
+import java.util.Arrays;
 import javax.inject.Inject;
 import net.runelite.api.Client;
+import net.runelite.api.Player;
 import net.runelite.api.Point;
 import net.runelite.api.TileObject;
 import net.runelite.api.coords.LocalPoint;
@@ -21,23 +23,46 @@ class MarksOfGraceCDClickBoxOverlay extends OverlayPanel
 
 	private final Client client;
 	private final MarksOfGraceCDPlugin plugin;
-	private final MarksOfGraceCDConfig config;
+
+	// Highlight colours derived from the settings they were built for
+	private MarksOfGraceCDSettings colorSettings;
+	private Color xpBorderColor;
+	private Color xpHoverBorderColor;
+	private Color xpFillColor;
+	private Color cooldownBorderColor;
+	private Color cooldownFillColor;
+
+	// Clickboxes of the obstacles as last projected, by the obstacle's index in the registry; reused
+	// until the obstacle, camera or viewport change. getClickbox() builds a new polygon on every call.
+	private TileObject[] clickboxObstacles = new TileObject[2];
+	private Shape[] clickboxes = new Shape[2];
+	private Rectangle[] clickboxBounds = new Rectangle[2];
+	private int cameraX;
+	private int cameraY;
+	private int cameraZ;
+	private int cameraPitch;
+	private int cameraYaw;
+	private int cameraScale;
+	private int viewportX;
+	private int viewportY;
+	private int viewportWidth;
+	private int viewportHeight;
 
 	@Inject
-	public MarksOfGraceCDClickBoxOverlay(Client client, MarksOfGraceCDPlugin plugin, MarksOfGraceCDConfig config)
+	public MarksOfGraceCDClickBoxOverlay(Client client, MarksOfGraceCDPlugin plugin)
 	{
 		super(plugin);
 		setPosition(OverlayPosition.DYNAMIC);
 		setLayer(OverlayLayer.ABOVE_SCENE);
 		this.client = client;
 		this.plugin = plugin;
-		this.config = config;
 	}
 
 	@Override
 	public Dimension render(Graphics2D graphics)
 	{
-		MarksOfGraceCDConfig.HighlightClickBoxesMode mode = config.highlightClickBoxesMode();
+		MarksOfGraceCDSettings settings = plugin.getSettings();
+		MarksOfGraceCDConfig.HighlightClickBoxesMode mode = settings.highlightClickBoxesMode();
 		if (mode == MarksOfGraceCDConfig.HighlightClickBoxesMode.ON_COOLDOWN || mode == MarksOfGraceCDConfig.HighlightClickBoxesMode.XP)
 		{
 			// Only show clickbox highlights if we're on a course and the course is enabled in the config
@@ -51,55 +76,148 @@ class MarksOfGraceCDClickBoxOverlay extends OverlayPanel
 				return null;
 			}
 
-			// Get player and mouse location. Get final obstacle.
-			Point mousePosition = client.getMouseCanvasPosition();
-			LocalPoint playerLocation = client.getLocalPlayer().getLocalLocation();
+			// Decide the highlight first; most frames off cooldown draw nothing
+			long currentMillis = plugin.currentTimeMillis();
+			// Use getCooldownTimestamp(true) to stay in sync with the deactivation logic
+			long cooldownTimestamp = plugin.getCooldownTimestamp(true);
+			long secondsLeft = plugin.getSecondsLeft(cooldownTimestamp, currentMillis);
+			int thresholdSeconds = plugin.getLapThresholdSeconds(plugin.currentCourse);
+			boolean xp = secondsLeft >= thresholdSeconds && mode == MarksOfGraceCDConfig.HighlightClickBoxesMode.XP;
+			if (!xp && !plugin.isOnCooldown)
+			{
+				return null;
+			}
+
+			// Highlight every final obstacle of the course in the scene
+			ObstacleRegistry obstacles = plugin.getObstacles();
+			int obstacleCount = obstacles.count(plugin.currentCourse);
+			if (obstacleCount == 0)
+			{
+				return null;
+			}
+
+			Player player = client.getLocalPlayer();
+			if (player == null)
+			{
+				return null;
+			}
+
+			LocalPoint playerLocation = player.getLocalLocation();
 			int playerPlane = client.getTopLevelWorldView().getPlane();
-			TileObject finalObstacle = plugin.getObstacles().get(plugin.currentCourse);
+			boolean viewChanged = updateView();
+			Point mousePosition = null;
+			updateColors(settings);
 
-			if (finalObstacle.getPlane() == playerPlane
-				&& finalObstacle.getLocalLocation().distanceTo(playerLocation) <= MAX_DISTANCE_FROM_COURSE)
+			for (int i = 0; i < obstacleCount; i++)
 			{
+				TileObject finalObstacle = obstacles.get(plugin.currentCourse, i);
+				if (finalObstacle.getPlane() != playerPlane
+					|| finalObstacle.getLocalLocation().distanceTo(playerLocation) > MAX_DISTANCE_FROM_COURSE)
+				{
+					continue;
+				}
 
-				// Set timer and threshold for clickbox highlight
-				long currentMillis = Instant.now().toEpochMilli();
-				// Use getCooldownTimestamp(true) to stay in sync with the deactivation logic
-				long cooldownTimestamp = plugin.getCooldownTimestamp(true);
-				long secondsLeft = plugin.getSecondsLeft(cooldownTimestamp, currentMillis);
-				int thresholdSeconds = plugin.currentCourse != null
-					? plugin.getLapThresholdSeconds(plugin.currentCourse) : 0;
-
-				Color color;
-				Shape clickbox = finalObstacle.getClickbox();
-				boolean darkOnHover = false;
-				if (clickbox != null)
+				Shape shape = getClickbox(i, finalObstacle, viewChanged);
+				Rectangle bounds = clickboxBounds[i];
+				// Culled when the obstacle has no clickbox or it is outside the viewport
+				if (shape == null || !bounds.intersects(viewportX, viewportY, viewportWidth, viewportHeight))
 				{
-					if (secondsLeft >= thresholdSeconds && mode == MarksOfGraceCDConfig.HighlightClickBoxesMode.XP)
-					{
-						color = config.XpHighlightColor();
-						if (clickbox.contains(mousePosition.getX(), mousePosition.getY()))
-						{
-							darkOnHover = true;
-						}
-						drawClickbox(graphics, clickbox, color, darkOnHover);
-					}
-					else if (plugin.isOnCooldown)
+					continue;
+				}
+
+				if (xp)
+				{
+					if (mousePosition == null)
 					{
-						color = config.CooldownHighlightColor();
-						drawClickbox(graphics, clickbox, color, darkOnHover);
+						mousePosition = client.getMouseCanvasPosition();
 					}
+					boolean hover = bounds.contains(mousePosition.getX(), mousePosition.getY())
+						&& shape.contains(mousePosition.getX(), mousePosition.getY());
+					drawClickbox(graphics, shape, hover ? xpHoverBorderColor : xpBorderColor, xpFillColor);
+				}
+				else
+				{
+					drawClickbox(graphics, shape, cooldownBorderColor, cooldownFillColor);
 				}
 			}
 		}
 		return null;
 	}
 
-	private void drawClickbox(Graphics2D graphics, Shape clickbox, Color color, boolean darkerOnHover)
+	// Records the camera and viewport; returns whether they changed since the last frame
+	private boolean updateView()
+	{
+		if (client.getCameraX() == cameraX
+			&& client.getCameraY() == cameraY
+			&& client.getCameraZ() == cameraZ
+			&& client.getCameraPitch() == cameraPitch
+			&& client.getCameraYaw() == cameraYaw
+			&& client.getScale() == cameraScale
+			&& client.getViewportXOffset() == viewportX
+			&& client.getViewportYOffset() == viewportY
+			&& client.getViewportWidth() == viewportWidth
+			&& client.getViewportHeight() == viewportHeight)
+		{
+			return false;
+		}
+
+		cameraX = client.getCameraX();
+		cameraY = client.getCameraY();
+		cameraZ = client.getCameraZ();
+		cameraPitch = client.getCameraPitch();
+		cameraYaw = client.getCameraYaw();
+		cameraScale = client.getScale();
+		viewportX = client.getViewportXOffset();
+		viewportY = client.getViewportYOffset();
+		viewportWidth = client.getViewportWidth();
+		viewportHeight = client.getViewportHeight();
+		return true;
+	}
+
+	// Returns the obstacle's clickbox, projecting it again only if the obstacle in this slot or the view changed
+	private Shape getClickbox(int slot, TileObject obstacle, boolean viewChanged)
+	{
+		if (slot >= clickboxObstacles.length)
+		{
+			int capacity = Math.max(slot + 1, clickboxObstacles.length * 2);
+			clickboxObstacles = Arrays.copyOf(clickboxObstacles, capacity);
+			clickboxes = Arrays.copyOf(clickboxes, capacity);
+			clickboxBounds = Arrays.copyOf(clickboxBounds, capacity);
+		}
+		else if (!viewChanged && clickboxObstacles[slot] == obstacle)
+		{
+			return clickboxes[slot];
+		}
+
+		Shape clickbox = obstacle.getClickbox();
+		clickboxObstacles[slot] = obstacle;
+		clickboxes[slot] = clickbox;
+		clickboxBounds[slot] = clickbox != null ? clickbox.getBounds() : null;
+		return clickbox;
+	}
+
+	private void updateColors(MarksOfGraceCDSettings settings)
+	{
+		if (settings == colorSettings)
+		{
+			return;
+		}
+
+		colorSettings = settings;
+		Color xpColor = settings.xpHighlightColor();
+		xpBorderColor = xpColor;
+		xpHoverBorderColor = xpColor.darker();
+		xpFillColor = ColorUtil.colorWithAlpha(xpColor, xpColor.getAlpha() / 5);
+		Color cooldownColor = settings.cooldownHighlightColor();
+		cooldownBorderColor = cooldownColor;
+		cooldownFillColor = ColorUtil.colorWithAlpha(cooldownColor, cooldownColor.getAlpha() / 5);
+	}
+
+	private void drawClickbox(Graphics2D graphics, Shape clickbox, Color borderColor, Color fillColor)
 	{
-		Color borderColor = darkerOnHover ? color.darker() : color;
 		graphics.setColor(borderColor);
 		graphics.draw(clickbox);
-		graphics.setColor(ColorUtil.colorWithAlpha(color, color.getAlpha() / 5));
+		graphics.setColor(fillColor);
 		graphics.fill(clickbox);
 	}
-}
\ No newline at end of file
+}
@@ -6,11 +6,14 @@ import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
 import net.runelite.client.config.ConfigSection;
 import net.runelite.client.config.Notification;
+import net.runelite.client.config.Range;
 import net.runelite.client.config.Units;
 
-@ConfigGroup("AfkMarksCanafis")  // Old name from when it was canifis only
+@ConfigGroup(MarksOfGraceCDConfig.GROUP)
 public interface MarksOfGraceCDConfig extends Config
 {
+	String GROUP = "AfkMarksCanafis"; // Old name from when it was canifis only
+
 	@ConfigSection(
 		name = "Per-course",
 		description = "Choose which courses the plugin is active on.",
@@ -458,6 +461,85 @@ public interface MarksOfGraceCDConfig extends Config
 		return false;
 	}
 
+	@ConfigItem(
+		keyName = "recordLapHistory",
+		name = "Record lap history",
+		description =
+			"Keep a log of completed laps and marks on disk<br>" +
+				"for analysing long sessions. The log has a fixed<br>" +
+				"size (about 1 MB) and overwrites its oldest entries.<br>" +
+				"Also lets 'Use observed lap time' start from<br>" +
+				"laps recorded in earlier sessions.",
+		position = 34,
+		section = advanced
+	)
+	default boolean recordLapHistory()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "useObservedLapTime",
+		name = "Use observed lap time",
+		description =
+			"Base the lap threshold on your own recorded lap<br>" +
+				"times for the course instead of the optimal time.<br>" +
+				"Falls back to the optimal time until enough laps<br>" +
+				"have been recorded. 'Use custom lap time' takes priority.",
+		position = 35,
+		section = advanced
+	)
+	default boolean useObservedLapTime()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "observedLapPercentile",
+		name = "Observed lap percentile",
+		description =
+			"Which of your lap times to plan with when using<br>" +
+				"observed lap times. 90 means 9 in 10 of your laps<br>" +
+				"are at least this fast; higher is safer.",
+		position = 36,
+		section = advanced
+	)
+	@Range(min = 50, max = 99)
+	default int observedLapPercentile()
+	{
+		return 90;
+	}
+
+	@ConfigItem(
+		keyName = "showSessionStats",
+		name = "Show session stats",
+		description =
+			"Show marks, laps and XP per hour and the share of<br>" +
+				"time spent waiting for the cooldown, over the<br>" +
+				"last hour of the session.",
+		position = 37,
+		section = advanced
+	)
+	default boolean showSessionStats()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "showLapPlan",
+		name = "Show lap plan",
+		description =
+			"While on cooldown, show how many laps still fit<br>" +
+				"before it ends, how long to wait at the last<br>" +
+				"obstacle and when the next mark can spawn.",
+		position = 38,
+		section = advanced
+	)
+	default boolean showLapPlan()
+	{
+		return false;
+	}
+
 	// Replaced the previous boolean setting `swapLeftClickOnWait` with an enum dropdown
 	// to allow three modes: OFF, SWAP_WHEN_CANNOT_COMPLETE_LAP (previous behaviour),
 	// and SWAP_WHEN_NOT_EXPIRED (always swap while cooldown active).
@@ -4,7 +4,6 @@ import com.marksofgracecooldown.ntp.NtpClient;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
-import java.time.Instant;
 import javax.inject.Inject;
 import net.runelite.client.ui.overlay.OverlayPanel;
 import net.runelite.client.ui.overlay.OverlayPosition;
@@ -15,15 +14,25 @@ class MarksOfGraceCDInfoOverlay extends OverlayPanel
 {
 
 	private final MarksOfGraceCDPlugin plugin;
-	private final MarksOfGraceCDConfig config;
+
+	// Inputs of the panel built last; the children are kept between frames and only rebuilt when one
+	// of these changes, i.e. a few times a second at most
+	private long renderedSecond = Long.MIN_VALUE;
+	private long renderedSecondsLeft;
+	private long renderedMarkSecondsLeft;
+	private boolean renderedOnCooldown;
+	private Courses renderedCourse;
+	private MarksOfGraceCDSettings renderedSettings;
+	private LapThresholdTable renderedThresholds;
+	private LapPlan renderedLapPlan;
 
 	@Inject
-	public MarksOfGraceCDInfoOverlay(MarksOfGraceCDPlugin plugin, MarksOfGraceCDConfig config)
+	public MarksOfGraceCDInfoOverlay(MarksOfGraceCDPlugin plugin)
 	{
 		super(plugin);
 		setPosition(OverlayPosition.TOP_LEFT);
+		setClearChildren(false);
 		this.plugin = plugin;
-		this.config = config;
 	}
 
 	@Override
@@ -31,22 +40,26 @@ class MarksOfGraceCDInfoOverlay extends OverlayPanel
 	{
 		if (plugin.currentCourse == null)
 		{
+			invalidatePanel();
 			return null;
 		}
 
 		if (!plugin.isCourseEnabled(plugin.currentCourse))
 		{
+			invalidatePanel();
 			return null;
 		}
 
-		long currentMillis = Instant.now().toEpochMilli();
+		MarksOfGraceCDSettings settings = plugin.getSettings();
+		long currentMillis = plugin.currentTimeMillis();
 
 		// Only time out if there's been no lap activity recently AND no active cooldown.
 		long lastActivity = Math.max(plugin.courseStartTimeMillis, plugin.lastCompleteTimeMillis);
-		long timeoutMillis = Math.max(1, config.inactivityTimeoutMinutes()) * MarksOfGraceCDPlugin.MILLIS_PER_MINUTE;
+		long timeoutMillis = Math.max(1, settings.inactivityTimeoutMinutes()) * MarksOfGraceCDPlugin.MILLIS_PER_MINUTE;
 		if (!plugin.isOnCooldown && currentMillis - lastActivity > timeoutMillis)
 		{
 			resetPluginState();
+			invalidatePanel();
 			return null;
 		}
 
@@ -54,19 +67,65 @@ class MarksOfGraceCDInfoOverlay extends OverlayPanel
 		// deactivation logic in onGameTick (which also passes true).
 		long cooldownTimestamp = plugin.getCooldownTimestamp(true);
 		long secondsLeft = plugin.getSecondsLeft(cooldownTimestamp, currentMillis);
+		LapPlan lapPlan = settings.showLapPlan() ? plugin.getCurrentLapPlan() : null;
+		long markSecondsLeft = lapPlan != null ? plugin.getSecondsLeft(lapPlan.getProjectedMarkMillis(), currentMillis) : -1;
+		// Session stats and debug values refresh once a second
+		long second = Math.floorDiv(currentMillis, 1000);
 
-		renderStatusTitle(secondsLeft);
-		addLine("Time until run:", formatTime(secondsLeft));
-
-
-		if (config.showDebugValues() && plugin.currentCourse != null)
+		if (!isPanelCurrent(second, secondsLeft, markSecondsLeft, settings, lapPlan))
 		{
-			renderDebugInfo();
+			panelComponent.getChildren().clear();
+
+			renderStatusTitle(settings, secondsLeft);
+			addLine("Time until run:", TimeText.minutesSeconds(secondsLeft));
+
+			if (lapPlan != null)
+			{
+				renderLapPlan(lapPlan, markSecondsLeft);
+			}
+
+			if (settings.showSessionStats())
+			{
+				renderSessionStats(currentMillis);
+			}
+
+			if (settings.showDebugValues() && plugin.currentCourse != null)
+			{
+				renderDebugInfo(settings);
+			}
+
+			renderedSecond = second;
+			renderedSecondsLeft = secondsLeft;
+			renderedMarkSecondsLeft = markSecondsLeft;
+			renderedOnCooldown = plugin.isOnCooldown;
+			renderedCourse = plugin.currentCourse;
+			renderedSettings = settings;
+			renderedThresholds = plugin.getLapThresholds();
+			renderedLapPlan = lapPlan;
 		}
 
 		return super.render(graphics);
 	}
 
+	private boolean isPanelCurrent(long second, long secondsLeft, long markSecondsLeft,
+		MarksOfGraceCDSettings settings, LapPlan lapPlan)
+	{
+		return second == renderedSecond
+			&& secondsLeft == renderedSecondsLeft
+			&& markSecondsLeft == renderedMarkSecondsLeft
+			&& plugin.isOnCooldown == renderedOnCooldown
+			&& plugin.currentCourse == renderedCourse
+			&& settings == renderedSettings
+			&& plugin.getLapThresholds() == renderedThresholds
+			&& lapPlan == renderedLapPlan;
+	}
+
+	// The panel isn't drawn this frame; rebuild it the next time it is
+	private void invalidatePanel()
+	{
+		renderedSecond = Long.MIN_VALUE;
+	}
+
 	private void resetPluginState()
 	{
 		plugin.lastCompleteMarkTimeMillis = 0;
@@ -75,7 +134,7 @@ class MarksOfGraceCDInfoOverlay extends OverlayPanel
 		plugin.currentCourse = null;
 	}
 
-	private void renderStatusTitle(long secondsLeft)
+	private void renderStatusTitle(MarksOfGraceCDSettings settings, long secondsLeft)
 	{
 		if (!plugin.isOnCooldown)
 		{
@@ -87,30 +146,72 @@ class MarksOfGraceCDInfoOverlay extends OverlayPanel
 
 		if (secondsLeft >= thresholdSeconds)
 		{
-			addTitle("XP", config.XpHighlightColor());
+			addTitle("XP", settings.xpHighlightColor());
 		}
 		else
 		{
-			addTitle("Wait", config.CooldownHighlightColor());
+			addTitle("Wait", settings.cooldownHighlightColor());
+		}
+	}
+
+	private void renderLapPlan(LapPlan plan, long markSecondsLeft)
+	{
+		addLine("Laps left:", Integer.toString(plan.getLapsRemaining()));
+		addLine("Wait at end:", TimeText.minutesSeconds((plan.getIdleMillis() + 999) / 1000));
+		addLine("Next mark:", TimeText.minutesSeconds(markSecondsLeft));
+	}
+
+	private void renderSessionStats(long currentMillis)
+	{
+		SessionTracker session = plugin.getSessionTracker();
+		double marksPerHour = session.getMarksPerHour(currentMillis);
+		if (marksPerHour < 0)
+		{
+			// Less than a minute of data
+			return;
 		}
+
+		addLine("Marks/hr:", String.format("%.1f", marksPerHour));
+		addLine("Laps/hr:", String.format("%.0f", session.getLapsPerHour(currentMillis)));
+		addLine("XP/hr:", String.format("%,.0f", session.getXpPerHour(currentMillis)));
+		addLine("Waiting:", String.format("%.0f%%", session.getWaitingFraction(currentMillis) * 100));
 	}
 
-	private void renderDebugInfo()
+	private void renderDebugInfo(MarksOfGraceCDSettings settings)
 	{
-		int baseOptimal = plugin.currentCourse.getOptimalTime(key -> "useSeersTeleport".equals(key) && config.useSeersTeleport() && (config.assumeHardKandarinDiary() || plugin.hasHardKandarinDiary()));
-		int combined = Math.max(0, baseOptimal + config.lapTimeBuffer());
+		int baseOptimal = plugin.getLapThresholds().getBaseOptimalSeconds(plugin.currentCourse);
+		int combined = Math.max(0, baseOptimal + settings.lapTimeBuffer());
 
-		addLine("Base lap time:", formatTime(baseOptimal));
-		addLine("Combined lap time:", formatTime(combined));
+		addLine("Base lap time:", TimeText.minutesSeconds(baseOptimal));
+		addLine("Combined lap time:", TimeText.minutesSeconds(combined));
 
-		int ping = plugin.getLastWorldPing();
-		addLine("World ping:", ping >= 0 ? ping + "ms" : "N/A");
+		LapTimeStats stats = plugin.getLapTimeStats();
+		if (stats.getCount(plugin.currentCourse) > 0)
+		{
+			addLine("Laps p50/p90/p99:", TimeText.minutesSeconds((stats.getP50Millis(plugin.currentCourse) + 999) / 1000) + " / "
+				+ TimeText.minutesSeconds((stats.getP90Millis(plugin.currentCourse) + 999) / 1000) + " / "
+				+ TimeText.minutesSeconds((stats.getP99Millis(plugin.currentCourse) + 999) / 1000));
+		}
 
-		if (config.enableNtpSync())
+		RttEstimator rtt = plugin.getWorldRtt();
+		int ping = rtt.getSmoothedRttMillis();
+		addLine("World ping:", ping >= 0 ? TimeText.millis(ping) : "N/A");
+		if (ping >= 0)
+		{
+			addLine("Ping jitter:", TimeText.millis(rtt.getJitterMillis()));
+		}
+
+		if (settings.enableNtpSync())
 		{
 			addLine("NTP status:", NtpClient.getSyncState().toString());
-			long offset = NtpClient.getSyncedOffsetMillis();
-			addLine("Clock offset:", (offset >= 0 ? "+" : "") + offset + "ms");
+			addLine("Clock offset:", TimeText.signedMillis(NtpClient.getSyncedOffsetMillis()));
+		}
+
+		PluginScheduler scheduler = plugin.getScheduler();
+		if (scheduler != null)
+		{
+			addLine("Jobs queued:", Integer.toString(scheduler.getQueueDepth()));
+			addLine("Job delay avg/max:", scheduler.getAverageStartDelayMillis() + "/" + scheduler.getMaxStartDelayMillis() + "ms");
 		}
 	}
 
@@ -123,9 +224,4 @@ class MarksOfGraceCDInfoOverlay extends OverlayPanel
 	{
 		panelComponent.getChildren().add(LineComponent.builder().left(left).right(right).build());
 	}
-
-	private String formatTime(long totalSeconds)
-	{
-		return String.format("%d:%02d", (totalSeconds % 3600) / 60, totalSeconds % 60);
-	}
 }
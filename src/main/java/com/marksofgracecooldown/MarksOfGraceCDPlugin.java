@@ -1,15 +1,13 @@
 package com.marksofgracecooldown;
 
 import com.google.inject.Provides;
+import com.marksofgracecooldown.ntp.MonotonicClock;
 import com.marksofgracecooldown.ntp.NtpClient;
 import com.marksofgracecooldown.ntp.NtpSyncState;
-import java.time.Instant;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
 import java.util.Objects;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import lombok.Getter;
@@ -21,6 +19,8 @@ import net.runelite.api.GameState;
 import static net.runelite.api.Skill.AGILITY;
 import net.runelite.api.TileItem;
 import net.runelite.api.TileObject;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.events.DecorativeObjectDespawned;
 import net.runelite.api.events.DecorativeObjectSpawned;
 import net.runelite.api.events.GameObjectDespawned;
@@ -29,17 +29,23 @@ import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.GameTick;
 import net.runelite.api.events.GroundObjectDespawned;
 import net.runelite.api.events.GroundObjectSpawned;
+import net.runelite.api.events.ItemContainerChanged;
 import net.runelite.api.events.ItemSpawned;
 import net.runelite.api.events.MenuEntryAdded;
 import net.runelite.api.events.StatChanged;
+import net.runelite.api.events.VarbitChanged;
 import net.runelite.api.events.WallObjectDespawned;
 import net.runelite.api.events.WallObjectSpawned;
 import net.runelite.api.events.WorldChanged;
+import net.runelite.api.gameval.InventoryID;
 import net.runelite.api.gameval.ItemID;
 import net.runelite.api.gameval.VarbitID;
 import net.runelite.client.Notifier;
+import static net.runelite.client.RuneLite.RUNELITE_DIR;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
+import net.runelite.client.events.ConfigChanged;
+import net.runelite.client.eventbus.EventBus;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.game.WorldService;
 import net.runelite.client.plugins.Plugin;
@@ -59,9 +65,21 @@ import net.runelite.http.api.worlds.WorldResult;
 public class MarksOfGraceCDPlugin extends Plugin
 {
 	public static final long MILLIS_PER_MINUTE = 60_000;
+	private static final File LAP_HISTORY_FILE = new File(RUNELITE_DIR, "marks-of-grace-cooldown/lap-history.bin");
+	private static final long LAP_HISTORY_FLUSH_SECONDS = 30;
+	private static final File COOLDOWN_STATE_FILE = new File(RUNELITE_DIR, "marks-of-grace-cooldown/cooldown-state.bin");
 	private static final int MARK_COOLDOWN_MINUTES = 3;
+	// Ping more often in the last stretch of a cooldown, where the compensation matters
+	private static final long PING_FAST_WINDOW_MILLIS = 30_000;
+	private static final long PING_FAST_INTERVAL_SECONDS = 3;
+	// With no cooldown running the ping isn't used, so sample less often
+	private static final int PING_IDLE_BACKOFF = 4;
+	// Ticks further apart than this (lag, logging out) don't count towards waiting time
+	private static final long MAX_TICK_GAP_MILLIS = 1_200;
+	// Re-anchor the clock to the wall clock once they drift further apart than this, e.g. after a suspend
+	private static final long MAX_CLOCK_DRIFT_MILLIS = 1_000;
 	@Getter
-	private final Map<Courses, TileObject> obstacles = new HashMap<>();
+	private final ObstacleRegistry obstacles = new ObstacleRegistry();
 	public long lastCompleteMarkTimeMillis;
 	public long lastCompleteTimeMillis;
 	public long courseStartTimeMillis;
@@ -86,11 +104,65 @@ public class MarksOfGraceCDPlugin extends Plugin
 	private ConfigManager configManager;
 	@Inject
 	private ClientThread clientThread;
-	private ScheduledExecutorService pingExecutor;
-	// last measured ping to the current RS world in ms; -1 == unknown
+	@Inject
+	private EventBus eventBus;
+	// registers the item, menu and object handlers and the clickbox overlay near courses only
+	private CourseActivation courseActivation;
+	// indexes the obstacles of a scene that was loaded before the plugin started
+	private SceneScanner sceneScanner;
+	// owns all background work (ping refresh, NTP sync); only exists while the plugin is started
+	@Getter
+	private PluginScheduler scheduler;
+	// round trip to the current RS world the cooldown timer compensates for, in ms; -1 == unknown
 	@Setter
 	@Getter
 	private volatile int lastWorldPing = -1;
+	// running cooldown of each account played recently, and its copy on disk
+	@Getter
+	private final AccountCooldowns accountCooldowns = new AccountCooldowns();
+	private final CooldownStateStore cooldownStateStore = new CooldownStateStore(COOLDOWN_STATE_FILE);
+	// account the cooldown fields belong to; -1 == none logged in since the plugin started
+	private long accountHash = -1;
+	// on-disk log of laps and marks; null when disabled or it could not be opened
+	private volatile LapHistoryLog lapHistory;
+	// observed lap times per course, seeded once per start from the lap history
+	@Getter
+	private final LapTimeStats lapTimeStats = new LapTimeStats();
+	private boolean lapTimeStatsSeeded = false;
+	// marks, laps, XP and waiting time over the last hour; client thread only
+	@Getter
+	private final SessionTracker sessionTracker = new SessionTracker();
+	// baselines for turning absolute values into gains; -1 == not seen yet this login
+	private int lastAgilityXp = -1;
+	private int lastGraceCount = -1;
+	// marks seen spawning on the course and not picked up yet; only these count as collected
+	private int pendingGraceMarks;
+	private long lastTickMillis;
+	// whether the "Wait" state was shown since the last lap finished; such a lap's duration includes the wait.
+	// Also set when the clock is re-anchored mid-lap.
+	private boolean waitedThisLap;
+	// lap schedule for the running cooldown; recomputed on lap completion and when a cooldown starts
+	@Getter
+	private volatile LapPlan lapPlan;
+	// smoothed RTT and jitter of the world ping samples; lastWorldPing is derived from it
+	@Getter
+	private final RttEstimator worldRtt = new RttEstimator();
+
+	// immutable copy of the config, swapped on ConfigChanged so hot paths avoid the config proxy
+	@Getter
+	private volatile MarksOfGraceCDSettings settings = MarksOfGraceCDSettings.DEFAULTS;
+
+	// per-course lap thresholds, rebuilt when the settings or the Hard Kandarin diary state change
+	@Getter
+	private volatile LapThresholdTable lapThresholds = LapThresholdTable.build(MarksOfGraceCDSettings.DEFAULTS, false);
+	// last Hard Kandarin diary state read on the client thread
+	private volatile boolean hardKandarinDiary = false;
+
+	// source of "now" for all cooldown timing; monotonic so wall-clock steps don't disturb a running cooldown
+	private MonotonicClock clock = MonotonicClock.SYSTEM;
+
+	// latest cooldown computation; replaced wholesale so readers never see a partial update
+	private volatile CooldownSnapshot cooldownSnapshot = CooldownSnapshot.EMPTY;
 
 	// track whether we've updated the kandarin detection config for this login session
 	private volatile boolean kandarinDetectionConfigUpdated = false;
@@ -105,34 +177,74 @@ public class MarksOfGraceCDPlugin extends Plugin
 	void setConfig(MarksOfGraceCDConfig config)
 	{
 		this.config = config;
+		refreshSettings();
+	}
+
+	// Package-private setter used by tests to control time
+	void setClock(MonotonicClock clock)
+	{
+		this.clock = clock;
+	}
+
+	/**
+	 * Current time in epoch milliseconds, as used for lap and cooldown timestamps.
+	 */
+	long currentTimeMillis()
+	{
+		return clock.millis();
+	}
+
+	private void refreshSettings()
+	{
+		settings = MarksOfGraceCDSettings.from(config);
+		refreshLapThresholds();
+	}
+
+	private void refreshLapThresholds()
+	{
+		lapThresholds = LapThresholdTable.build(settings, hardKandarinDiary, lapTimeStats);
 	}
 
 	@Override
 	protected void startUp()
 	{
+		refreshSettings();
 		overlayManager.add(marksCooldownOverlay);
-		overlayManager.add(marksCooldownClickboxOverlay);
+		courseActivation = new CourseActivation(this, eventBus, overlayManager, marksCooldownClickboxOverlay);
+		sceneScanner = new SceneScanner(eventBus, object -> onTileObject(null, object));
+		// Already on a course: its spawn events were missed, so scan the loaded scene instead
+		clientThread.invoke(() ->
+		{
+			updateCourseActivation();
+			startSceneScan();
+		});
 		kandarinDetectionConfigUpdated = false;
 		// Attempt to update kandarin detection status (will only take effect if logged in)
 		clientThread.invoke(this::updateKandarinDetectedConfigIfNeeded);
 
+		scheduler = PluginScheduler.create("mogcd-background");
+		accountCooldowns.replaceAll(cooldownStateStore.load());
+		// Restores the cooldown of the account already logged in, if any; otherwise this happens on login
+		clientThread.invoke(this::updateAccount);
+
 		// Start NTP sync if enabled to correct for system clock drift
-		if (config.enableNtpSync())
+		if (settings.enableNtpSync())
 		{
-			NtpClient.startSync();
+			NtpClient.startSync(scheduler);
 		}
 
-		// Start background executor to periodically refresh the ping to the current world if enabled
-		if (config.enableWorldPing())
+		updateLapHistory();
+		scheduler.scheduleWithFixedDelay(this::flushLapHistory, LAP_HISTORY_FLUSH_SECONDS,
+			LAP_HISTORY_FLUSH_SECONDS, TimeUnit.SECONDS);
+
+		// Periodically refresh the ping to the current world if enabled
+		if (settings.enableWorldPing())
 		{
-			pingExecutor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "mogcd-world-ping"));
-			int interval = Math.max(1, config.pingRefreshInterval());
-			pingExecutor.scheduleWithFixedDelay(this::refreshWorldPing, 5, interval, TimeUnit.SECONDS);
+			schedulePingRefresh(scheduler, 5);
 		}
 		else
 		{
-			pingExecutor = null;
-			lastWorldPing = -1;
+			resetWorldPing();
 		}
 	}
 
@@ -140,23 +252,165 @@ public class MarksOfGraceCDPlugin extends Plugin
 	protected void shutDown()
 	{
 		overlayManager.remove(marksCooldownOverlay);
-		overlayManager.remove(marksCooldownClickboxOverlay);
-		if (pingExecutor != null)
+		if (courseActivation != null)
 		{
-			pingExecutor.shutdownNow();
-			pingExecutor = null;
+			courseActivation.setActive(false);
+			courseActivation = null;
 		}
-		lastWorldPing = -1;
+		if (sceneScanner != null)
+		{
+			sceneScanner.cancel();
+			sceneScanner = null;
+		}
+		// stop periodic NTP re-discipline while the plugin is off; this queues the NTP socket close
+		NtpClient.stopSync();
+		closeLapHistory();
+		lapTimeStats.clear();
+		lapTimeStatsSeeded = false;
+		sessionTracker.reset();
+		lastAgilityXp = -1;
+		lastGraceCount = -1;
+		pendingGraceMarks = 0;
+		refreshLapThresholds();
+		if (scheduler != null)
+		{
+			// Periodic and delayed jobs are dropped; queued immediate jobs such as the socket close still run
+			log.debug("Stopping {}", scheduler);
+			scheduler.shutdown();
+			scheduler = null;
+		}
+		resetWorldPing();
 		// reset the kandarin detection flag so we update next login
 		kandarinDetectionConfigUpdated = false;
+		hardKandarinDiary = false;
 		// clear detection flag in config UI
-		configManager.setConfiguration("AfkMarksCanafis", "kandarinDiaryDetected", false);
+		configManager.setConfiguration(MarksOfGraceCDConfig.GROUP, "kandarinDiaryDetected", false);
 		// reset course state
+		clearCooldownState();
+		accountHash = -1;
+		obstacles.clear();
+	}
+
+	private void clearCooldownState()
+	{
 		lastCompleteMarkTimeMillis = 0;
 		lastCompleteTimeMillis = 0;
 		courseStartTimeMillis = 0;
+		isOnCooldown = false;
+		hasReducedCooldown = false;
 		currentCourse = null;
-		obstacles.clear();
+		cooldownSnapshot = CooldownSnapshot.EMPTY;
+		lapPlan = null;
+		waitedThisLap = false;
+	}
+
+	// Must run on the client thread
+	private void updateCourseActivation()
+	{
+		CourseActivation activation = courseActivation;
+		if (activation != null)
+		{
+			WorldView worldView = client.getTopLevelWorldView();
+			activation.update(worldView != null ? worldView.getMapRegions() : null);
+		}
+	}
+
+	// Must run on the client thread
+	private void startSceneScan()
+	{
+		SceneScanner scanner = sceneScanner;
+		CourseActivation activation = courseActivation;
+		WorldView worldView = client.getTopLevelWorldView();
+		if (scanner == null || activation == null || !activation.isActive() || worldView == null
+			|| client.getGameState() != GameState.LOGGED_IN)
+		{
+			return;
+		}
+		scanner.start(worldView.getScene().getTiles());
+	}
+
+	// Must run on the client thread
+	private void updateAccount()
+	{
+		if (client.getGameState() == GameState.LOGGED_IN)
+		{
+			switchAccount(client.getAccountHash());
+		}
+	}
+
+	/**
+	 * Points the cooldown state at the account that logged in. The previous account's cooldown is
+	 * already kept in {@link AccountCooldowns}; the new account's one, if still running, is restored.
+	 */
+	void switchAccount(long hash)
+	{
+		if (hash == accountHash)
+		{
+			return;
+		}
+
+		accountHash = hash;
+		clearCooldownState();
+		CooldownStateStore.CooldownState state = accountCooldowns.get(hash);
+		if (state != null && !restoreCooldownState(state))
+		{
+			accountCooldowns.remove(hash);
+		}
+	}
+
+	private void schedulePingRefresh(PluginScheduler executor, long delaySeconds)
+	{
+		try
+		{
+			executor.schedule(() ->
+			{
+				refreshWorldPing();
+				if (settings.enableWorldPing())
+				{
+					schedulePingRefresh(executor, nextPingDelaySeconds());
+				}
+			}, delaySeconds, TimeUnit.SECONDS);
+		}
+		catch (RejectedExecutionException e)
+		{
+			// plugin shut down
+		}
+	}
+
+	/**
+	 * Delay before the next world ping: the configured interval, shortened close to cooldown expiry
+	 * and stretched while no cooldown is running.
+	 */
+	long nextPingDelaySeconds()
+	{
+		int interval = Math.max(1, settings.pingRefreshInterval());
+		if (!isOnCooldown || lastCompleteMarkTimeMillis == 0)
+		{
+			return (long) interval * PING_IDLE_BACKOFF;
+		}
+
+		long millisLeft = getCooldownTimestamp(true) - currentTimeMillis();
+		if (millisLeft > 0 && millisLeft <= PING_FAST_WINDOW_MILLIS)
+		{
+			return Math.min(interval, PING_FAST_INTERVAL_SECONDS);
+		}
+		return interval;
+	}
+
+	/**
+	 * Feeds a world ping sample to the RTT estimator and updates the compensation used by the timer.
+	 * Failed pings (negative) are ignored so one timeout doesn't discard the estimate.
+	 */
+	void recordWorldPing(int ping)
+	{
+		worldRtt.addSample(ping);
+		lastWorldPing = worldRtt.getCompensationRttMillis();
+	}
+
+	private void resetWorldPing()
+	{
+		worldRtt.reset();
+		lastWorldPing = -1;
 	}
 
 	private void refreshWorldPing()
@@ -176,20 +430,11 @@ public class MarksOfGraceCDPlugin extends Plugin
 		try
 		{
 			// Ping.ping is a blocking call; run in this background thread
-			int ping = Ping.ping(currentWorld, true);
-			if (ping >= 0)
-			{
-				lastWorldPing = ping;
-			}
-			else
-			{
-				lastWorldPing = -1;
-			}
+			recordWorldPing(Ping.ping(currentWorld, true));
 		}
 		catch (Throwable t)
 		{
 			log.debug("Failed to refresh world ping: {}", t.toString());
-			lastWorldPing = -1;
 		}
 	}
 
@@ -201,35 +446,238 @@ public class MarksOfGraceCDPlugin extends Plugin
 			return;
 		}
 
-		Courses course = Courses.getCourse(this.client.getLocalPlayer().getWorldLocation().getRegionID());
+		// The first value after login is the baseline, not a gain
+		int xp = statChanged.getXp();
+		if (lastAgilityXp >= 0 && xp > lastAgilityXp)
+		{
+			sessionTracker.recordXp(currentTimeMillis(), xp - lastAgilityXp);
+		}
+		lastAgilityXp = xp;
+
+		WorldPoint location = client.getLocalPlayer().getWorldLocation();
+		Courses course = Courses.getCourse(location.getRegionID());
 
 		if (course != null)
 		{
 			if (currentCourse != course)
 			{
 				currentCourse = course;
-				courseStartTimeMillis = Instant.now().toEpochMilli();
+				courseStartTimeMillis = currentTimeMillis();
 			}
 
-			if (Arrays.stream(course.getCourseEndWorldPoints()).anyMatch((wp) ->
-				wp.equals(this.client.getLocalPlayer().getWorldLocation())))
+			int tile = Courses.packTile(location.getX(), location.getY(), location.getPlane());
+			if (Courses.getCourseByFinishTile(tile) == course)
 			{
-				lastCompleteTimeMillis = Instant.now().toEpochMilli();
+				completeLap(course, currentTimeMillis());
 
 				// Ensure NTP is synced when user starts agility training
 				checkNtpSync();
 
 				hasReducedCooldown = currentCourse == Courses.ARDOUGNE &&
 					client.getVarbitValue(VarbitID.ARDOUGNE_DIARY_ELITE_COMPLETE) == 1;
+
+				updateLapPlan();
 			}
 		}
 	}
 
+	// Records the cooldown that just started for the logged in account and writes all of them to disk
+	// off the client thread
+	private void saveCooldownState()
+	{
+		if (currentCourse == null || accountHash == -1)
+		{
+			return;
+		}
+		accountCooldowns.put(accountHash,
+			new CooldownStateStore.CooldownState(currentCourse, lastCompleteMarkTimeMillis, hasReducedCooldown));
+
+		PluginScheduler current = scheduler;
+		if (current == null)
+		{
+			return;
+		}
+		try
+		{
+			current.execute(() ->
+			{
+				try
+				{
+					// Copied when the save runs, so the last save to run writes the newest state
+					cooldownStateStore.save(accountCooldowns.snapshot());
+				}
+				catch (IOException e)
+				{
+					log.debug("Failed to save cooldown state: {}", e.getMessage());
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			// plugin shut down
+		}
+	}
+
+	/**
+	 * Resumes a cooldown saved before a restart, if it can still be running.
+	 *
+	 * @return whether the cooldown was restored
+	 */
+	boolean restoreCooldownState(CooldownStateStore.CooldownState state)
+	{
+		long now = currentTimeMillis();
+		if (state == null || !state.isWithinCooldown(now, getCooldownWindowMillis()))
+		{
+			return false;
+		}
+
+		currentCourse = state.getCourse();
+		lastCompleteMarkTimeMillis = state.getMarkTimeMillis();
+		lastCompleteTimeMillis = state.getMarkTimeMillis();
+		hasReducedCooldown = state.isReducedCooldown();
+		isOnCooldown = true;
+		// Counts as activity so the overlay's inactivity timeout doesn't drop the restored cooldown
+		courseStartTimeMillis = now;
+		updateLapPlan();
+		log.debug("Restored cooldown on {} from mark at {}", currentCourse, lastCompleteMarkTimeMillis);
+		return true;
+	}
+
+	/**
+	 * Records a lap finished at {@code now}. Its duration is only known if the lap started on this
+	 * course, and only counts towards the observed lap times if the "Wait" state was not shown during
+	 * it: time spent waiting would otherwise raise the threshold and ask for even more waiting.
+	 */
+	void completeLap(Courses course, long now)
+	{
+		long previousLap = lastCompleteTimeMillis;
+		lastCompleteTimeMillis = now;
+		sessionTracker.recordLap(now);
+		boolean timed = previousLap >= courseStartTimeMillis && previousLap > 0 && !waitedThisLap;
+		waitedThisLap = false;
+		recordLap(course, now, timed ? now - previousLap : 0);
+	}
+
+	private void recordLap(Courses course, long timestampMillis, long durationMillis)
+	{
+		lapTimeStats.record(course, durationMillis);
+		if (settings.useObservedLapTime())
+		{
+			refreshLapThresholds();
+		}
+		LapHistoryLog history = lapHistory;
+		if (history != null)
+		{
+			history.appendLap(course, timestampMillis, (int) Math.min(durationMillis, Integer.MAX_VALUE));
+		}
+	}
+
+	// Opens or closes the lap history log to match the settings; only while the plugin is started
+	private synchronized void updateLapHistory()
+	{
+		if (scheduler == null)
+		{
+			return;
+		}
+
+		if (!settings.recordLapHistory())
+		{
+			closeLapHistory();
+			return;
+		}
+
+		if (lapHistory == null)
+		{
+			try
+			{
+				lapHistory = LapHistoryLog.open(LAP_HISTORY_FILE);
+			}
+			catch (IOException e)
+			{
+				log.warn("Unable to open lap history at {}", LAP_HISTORY_FILE, e);
+				return;
+			}
+
+			// Only once per start: laps recorded since then are already in the stats
+			if (!lapTimeStatsSeeded)
+			{
+				lapTimeStatsSeeded = true;
+				for (LapHistoryLog.Entry entry : lapHistory.readAll())
+				{
+					if (entry.isLap())
+					{
+						lapTimeStats.record(entry.getCourse(), entry.getDurationMillis());
+					}
+				}
+				refreshLapThresholds();
+			}
+		}
+	}
+
+	private void flushLapHistory()
+	{
+		LapHistoryLog history = lapHistory;
+		if (history != null)
+		{
+			history.flush();
+		}
+	}
+
+	private synchronized void closeLapHistory()
+	{
+		LapHistoryLog history = lapHistory;
+		if (history == null || scheduler == null)
+		{
+			return;
+		}
+		lapHistory = null;
+
+		// Final force() happens off the calling thread
+		Runnable close = () ->
+		{
+			try
+			{
+				history.close();
+			}
+			catch (IOException e)
+			{
+				log.debug("Failed to close lap history: {}", e.getMessage());
+			}
+		};
+		try
+		{
+			scheduler.execute(close);
+		}
+		catch (RejectedExecutionException e)
+		{
+			close.run();
+		}
+	}
+
+	@Subscribe
+	public void onConfigChanged(ConfigChanged event)
+	{
+		if (MarksOfGraceCDConfig.GROUP.equals(event.getGroup()))
+		{
+			refreshSettings();
+			updateLapHistory();
+		}
+	}
+
+	@Subscribe
+	public void onVarbitChanged(VarbitChanged event)
+	{
+		if (event.getVarbitId() == VarbitID.KANDARIN_DIARY_HARD_COMPLETE)
+		{
+			updateHardKandarinDiary();
+		}
+	}
+
 	@Subscribe
 	public void onWorldChanged(WorldChanged event)
 	{
 		// Reset ping when changing worlds to avoid using stale latency data
-		lastWorldPing = -1;
+		resetWorldPing();
 	}
 
 	@Subscribe
@@ -240,6 +688,12 @@ public class MarksOfGraceCDPlugin extends Plugin
 			updateKandarinDetectedConfigIfNeeded();
 		}
 
+		reanchorClock();
+
+		long now = currentTimeMillis();
+		long sinceLastTick = now - lastTickMillis;
+		lastTickMillis = now;
+
 		if (isOnCooldown)
 		{
 			if (lastCompleteMarkTimeMillis == 0)
@@ -250,17 +704,75 @@ public class MarksOfGraceCDPlugin extends Plugin
 
 			long cooldownTimestamp = getCooldownTimestamp(true);
 
-			if (Instant.now().toEpochMilli() >= cooldownTimestamp)
+			updateWaiting(now, sinceLastTick, cooldownTimestamp);
+
+			if (now >= cooldownTimestamp)
 			{
 				isOnCooldown = false;
 				client.addChatMessage(ChatMessageType.GAMEMESSAGE, "", "Marks of grace cooldown has finished, run until you find your next mark.", null);
 
-				notifier.notify(config.notifyMarksOfGraceCD(), "Marks of grace cooldown has finished.");
+				notifier.notify(settings.notifyMarksOfGraceCD(), "Marks of grace cooldown has finished.");
 			}
 		}
 	}
 
+	// Follows the system clock again after a suspend or clock change, but only between cooldowns:
+	// a running cooldown must not see the clock step
+	void reanchorClock()
+	{
+		if (isOnCooldown || !clock.reanchor(MAX_CLOCK_DRIFT_MILLIS))
+		{
+			return;
+		}
+
+		log.debug("Clock re-anchored to the system clock");
+		// The lap in progress started on the old timescale, so don't time it
+		waitedThisLap = true;
+		// The NTP offset was measured against the old anchor
+		PluginScheduler current = scheduler;
+		if (current != null && settings.enableNtpSync())
+		{
+			NtpClient.startSync(current);
+		}
+	}
+
+	// Tracks the time spent in the "Wait" state (same condition as the overlay title) while on cooldown
+	void updateWaiting(long now, long sinceLastTick, long cooldownTimestamp)
+	{
+		if (currentCourse == null || getSecondsLeft(cooldownTimestamp, now) >= getLapThresholdSeconds(currentCourse))
+		{
+			return;
+		}
+
+		waitedThisLap = true;
+		// Ignore gaps from lag or logging out
+		if (sinceLastTick <= MAX_TICK_GAP_MILLIS)
+		{
+			sessionTracker.recordWaiting(now, sinceLastTick);
+		}
+	}
+
 	@Subscribe
+	public void onItemContainerChanged(ItemContainerChanged event)
+	{
+		if (event.getContainerId() != InventoryID.INV)
+		{
+			return;
+		}
+
+		int graceCount = event.getItemContainer().count(ItemID.GRACE);
+		// Only count marks seen spawning on a course, not ones withdrawn from a bank or traded;
+		// the first inventory after login is the baseline
+		if (lastGraceCount >= 0 && graceCount > lastGraceCount && pendingGraceMarks > 0)
+		{
+			sessionTracker.recordMarks(currentTimeMillis(), Math.min(graceCount - lastGraceCount, pendingGraceMarks));
+			// A pickup takes the whole stack
+			pendingGraceMarks = 0;
+		}
+		lastGraceCount = graceCount;
+	}
+
+	// Item, menu and object events are forwarded by CourseActivation while a course is in the scene
 	public void onItemSpawned(ItemSpawned itemSpawned)
 	{
 		if (currentCourse == null)
@@ -278,16 +790,25 @@ public class MarksOfGraceCDPlugin extends Plugin
 
 		if (item.getId() == ItemID.GRACE)
 		{
+			pendingGraceMarks += item.getQuantity();
+
 			// Only start a new cooldown if a lap was completed since the last tracked mark.
 			if (lastCompleteTimeMillis > lastCompleteMarkTimeMillis)
 			{
 				lastCompleteMarkTimeMillis = lastCompleteTimeMillis;
 				isOnCooldown = true;
+				updateLapPlan();
+
+				saveCooldownState();
+				LapHistoryLog history = lapHistory;
+				if (history != null)
+				{
+					history.appendMark(currentCourse, lastCompleteMarkTimeMillis);
+				}
 			}
 		}
 	}
 
-	@Subscribe
 	public void onMenuEntryAdded(MenuEntryAdded e)
 	{
 		if (!isOnCooldown || currentCourse == null)
@@ -302,7 +823,7 @@ public class MarksOfGraceCDPlugin extends Plugin
 		}
 
 		// Determine configured behaviour
-		MarksOfGraceCDConfig.SwapLeftClickMode mode = config.swapLeftClickMode();
+		MarksOfGraceCDConfig.SwapLeftClickMode mode = settings.swapLeftClickMode();
 
 		if (mode == MarksOfGraceCDConfig.SwapLeftClickMode.OFF)
 		{
@@ -314,7 +835,7 @@ public class MarksOfGraceCDPlugin extends Plugin
 			return;
 		}
 
-		long millisLeft = getCooldownTimestamp(true) - Instant.now().toEpochMilli();
+		long millisLeft = getCooldownTimestamp(true) - currentTimeMillis();
 		if (millisLeft <= 0)
 		{
 			return;
@@ -337,78 +858,98 @@ public class MarksOfGraceCDPlugin extends Plugin
 	@Subscribe
 	public void onGameStateChanged(GameStateChanged event)
 	{
-		if (Objects.requireNonNull(event.getGameState()) == GameState.LOADING)
+		GameState state = Objects.requireNonNull(event.getGameState());
+		if (state == GameState.LOADING)
 		{
 			// Only clear the obstacle map — game objects are re-sent after every region load.
 			obstacles.clear();
+			// Marks still on the ground are spawned again once the new scene loads
+			pendingGraceMarks = 0;
+			// The new scene's objects arrive as spawn events
+			if (sceneScanner != null)
+			{
+				sceneScanner.cancel();
+			}
+			// The new scene's regions are known before its objects spawn
+			updateCourseActivation();
+		}
+		else if (state == GameState.LOGGED_IN)
+		{
+			switchAccount(client.getAccountHash());
+		}
+		else if (state == GameState.LOGIN_SCREEN)
+		{
+			// The next login may be another account; take fresh XP and inventory baselines
+			lastAgilityXp = -1;
+			lastGraceCount = -1;
+			pendingGraceMarks = 0;
 		}
 	}
 
-	@Subscribe
 	public void onGameObjectSpawned(GameObjectSpawned event)
 	{
 		onTileObject(null, event.getGameObject());
 	}
 
-	@Subscribe
 	public void onGameObjectDespawned(GameObjectDespawned event)
 	{
 		onTileObject(event.getGameObject(), null);
 	}
 
-	@Subscribe
 	public void onGroundObjectSpawned(GroundObjectSpawned event)
 	{
 		onTileObject(null, event.getGroundObject());
 	}
 
-	@Subscribe
 	public void onGroundObjectDespawned(GroundObjectDespawned event)
 	{
 		onTileObject(event.getGroundObject(), null);
 	}
 
-	@Subscribe
 	public void onWallObjectSpawned(WallObjectSpawned event)
 	{
 		onTileObject(null, event.getWallObject());
 	}
 
-	@Subscribe
 	public void onWallObjectDespawned(WallObjectDespawned event)
 	{
 		onTileObject(event.getWallObject(), null);
 	}
 
-	@Subscribe
 	public void onDecorativeObjectSpawned(DecorativeObjectSpawned event)
 	{
 		onTileObject(null, event.getDecorativeObject());
 	}
 
-	@Subscribe
 	public void onDecorativeObjectDespawned(DecorativeObjectDespawned event)
 	{
 		onTileObject(event.getDecorativeObject(), null);
 	}
 
 
+	// Runs for every object spawn/despawn during region loads, so it must not allocate:
+	// the obstacle id is probed in Courses' primitive index and nothing is boxed.
 	private void onTileObject(TileObject oldObject, TileObject newObject)
 	{
-		obstacles.remove(currentCourse, oldObject);
+		if (oldObject != null)
+		{
+			// Keyed by the despawning obstacle's own course, which need not be the current one
+			Courses oldCourse = Courses.getCourseByLastObstacle(oldObject.getId());
+			if (oldCourse != null)
+			{
+				obstacles.remove(oldCourse, oldObject);
+			}
+		}
 
 		if (newObject == null)
 		{
 			return;
 		}
 
-		if (Courses.allLastObstacleIds.contains(newObject.getId()))
+		Courses course = Courses.getCourseByLastObstacle(newObject.getId());
+		if (course != null)
 		{
-			Courses course = Courses.getCourseByLastObstacle(newObject.getId());
-			if (course != null)
-			{
-				obstacles.put(course, newObject);
-			}
+			obstacles.add(course, newObject);
 		}
 	}
 
@@ -427,7 +968,7 @@ public class MarksOfGraceCDPlugin extends Plugin
 			return false;
 		}
 
-		MarksOfGraceCDConfig.SwapLeftClickMode mode = config.swapLeftClickMode();
+		MarksOfGraceCDConfig.SwapLeftClickMode mode = settings.swapLeftClickMode();
 		if (mode == MarksOfGraceCDConfig.SwapLeftClickMode.OFF)
 		{
 			return false;
@@ -438,7 +979,7 @@ public class MarksOfGraceCDPlugin extends Plugin
 			return false;
 		}
 
-		long millisLeft = getCooldownTimestamp(true) - Instant.now().toEpochMilli();
+		long millisLeft = getCooldownTimestamp(true) - currentTimeMillis();
 		if (millisLeft <= 0)
 		{
 			return false;
@@ -453,79 +994,100 @@ public class MarksOfGraceCDPlugin extends Plugin
 		return (millisLeft / 1000) < thresholdSeconds;
 	}
 
+	/**
+	 * Replans the rest of the running cooldown from the last lap completion, see {@link LapPlan}.
+	 */
+	void updateLapPlan()
+	{
+		if (!isOnCooldown || currentCourse == null || lastCompleteMarkTimeMillis == 0)
+		{
+			lapPlan = null;
+			return;
+		}
+		lapPlan = LapPlan.compute(currentCourse, lastCompleteMarkTimeMillis, lastCompleteTimeMillis,
+			getCooldownTimestamp(true), getLapThresholdSeconds(currentCourse));
+	}
+
+	/**
+	 * @return the lap plan for the running cooldown, or null if there is none. A plan made for another
+	 * expiry or lap threshold (the ping, NTP offset or settings changed since) is replanned from the
+	 * last lap, so it always agrees with the timer the overlays show.
+	 */
+	LapPlan getCurrentLapPlan()
+	{
+		Courses course = currentCourse;
+		long markTime = lastCompleteMarkTimeMillis;
+		if (!isOnCooldown || course == null || markTime == 0)
+		{
+			return null;
+		}
+
+		long expiry = getCooldownTimestamp(true);
+		int threshold = getLapThresholdSeconds(course);
+		LapPlan plan = lapPlan;
+		if (plan == null || !plan.isFor(course, markTime, expiry, threshold))
+		{
+			plan = LapPlan.compute(course, markTime, lastCompleteTimeMillis, expiry, threshold);
+			lapPlan = plan;
+		}
+		return plan;
+	}
+
 	/**
 	 * Helper to check whether the plugin is enabled for a given course based on config toggles.
 	 */
 	boolean isCourseEnabled(Courses course)
 	{
-		return course == null || course.isEnabled(config);
+		return settings.isCourseEnabled(course);
 	}
 
 	/**
 	 * Compute the lap-time threshold in seconds used for swapping/deprioritizing the last obstacle.
 	 * If the user enabled the custom-lap-time override, return the configured custom seconds.
-	 * Otherwise, compute the course optimal time (considering course-specific toggles) and add the
-	 * user's optimalTimeBufferSeconds to allow forgiving timing.
+	 * In observed lap time mode, once enough laps are recorded on the course, return the configured
+	 * percentile of them. Otherwise, return the course optimal time (considering course-specific
+	 * toggles) plus the user's lapTimeBuffer. Served from the precomputed {@link LapThresholdTable}.
 	 */
 	int getLapThresholdSeconds(Courses course)
 	{
-		if (config.useCustomLapTime())
-		{
-			return Math.max(0, config.customLapTimeSeconds());
-		}
-
-		int baseOptimal = course.getOptimalTime(key ->
-			("useSeersTeleport".equals(key) && config.useSeersTeleport() &&
-				(config.assumeHardKandarinDiary() || hasHardKandarinDiary()))
-		);
+		return lapThresholds.getThresholdSeconds(course);
+	}
 
-		int combined = baseOptimal + config.lapTimeBuffer();
-		return Math.max(0, combined);
+	/**
+	 * Longest time a cooldown can run after its mark: the full cooldown plus the configured timer
+	 * buffer, as added by {@link CooldownSnapshot#compute}.
+	 */
+	long getCooldownWindowMillis()
+	{
+		return MARK_COOLDOWN_MINUTES * MILLIS_PER_MINUTE + settings.timerBufferSeconds() * 1000L;
 	}
 
 	public long getCooldownTimestamp(boolean checkForReduced)
 	{
-		if (lastCompleteMarkTimeMillis == 0)
-		{
-			return lastCompleteMarkTimeMillis;
-		}
-
-		// Apply NTP offset to get the correct server time for minute-truncation
-		// This corrects for users whose system clocks are out of sync
-		long ntpOffset = config.enableNtpSync() ? NtpClient.getSyncedOffsetMillis() : 0;
-		long serverTimeMillis = lastCompleteMarkTimeMillis + ntpOffset;
-
-		// Minute-truncate using server time to match OSRS game tick timing
-		long minuteTruncatedMillis = serverTimeMillis - (serverTimeMillis % MILLIS_PER_MINUTE);
-		long serverCooldownMillis = minuteTruncatedMillis + (MARK_COOLDOWN_MINUTES * MILLIS_PER_MINUTE);
-
-		// Add user-configured buffer for safety margin
-		long leewayAdjusted = serverCooldownMillis + ((long) config.timerBufferSeconds() * 1000);
-
-		// Apply Ardougne elite diary reduced cooldown only when user opted into using the short Ardougne timer
-		if (checkForReduced && hasReducedCooldown && config.useShortArdougneTimer())
-		{
-			leewayAdjusted -= MILLIS_PER_MINUTE;
-		}
-
-		// Convert back to local time by removing the NTP offset
-		long localCooldownMillis = leewayAdjusted - ntpOffset;
+		return getCooldownSnapshot().getCooldownTimestamp(checkForReduced);
+	}
 
-		// If we have a recent ping to the world, approximate one-way delay and subtract it
+	/**
+	 * Returns the cooldown snapshot for the current mark, recomputing it only if one of its inputs
+	 * (mark time, reduced-cooldown flag, NTP offset, ping or the relevant config values) changed.
+	 */
+	CooldownSnapshot getCooldownSnapshot()
+	{
+		long markTime = lastCompleteMarkTimeMillis;
+		boolean reduced = hasReducedCooldown;
+		long ntpOffset = settings.enableNtpSync() ? NtpClient.getSyncedOffsetMillis() : 0;
 		int ping = lastWorldPing;
-		if (ping > 0)
-		{
-			long oneWay = ping / 2L;
-			localCooldownMillis -= oneWay;
-		}
+		int timerBuffer = settings.timerBufferSeconds();
+		boolean shortArdougne = settings.useShortArdougneTimer();
 
-		// Safety: don't return a timestamp earlier than the recorded completion time
-		if (localCooldownMillis < lastCompleteMarkTimeMillis)
+		CooldownSnapshot snapshot = cooldownSnapshot;
+		if (!snapshot.matches(markTime, reduced, ntpOffset, ping, timerBuffer, shortArdougne))
 		{
-			localCooldownMillis = lastCompleteMarkTimeMillis;
+			snapshot = CooldownSnapshot.compute(markTime, reduced, ntpOffset, ping, timerBuffer, shortArdougne,
+				MARK_COOLDOWN_MINUTES);
+			cooldownSnapshot = snapshot;
 		}
-
-		return localCooldownMillis;
+		return snapshot;
 	}
 
 	/**
@@ -540,6 +1102,18 @@ public class MarksOfGraceCDPlugin extends Plugin
 		return client.getVarbitValue(VarbitID.KANDARIN_DIARY_HARD_COMPLETE) == 1;
 	}
 
+	// Must run on the client thread; rebuilds the threshold table if the diary state changed
+	private boolean updateHardKandarinDiary()
+	{
+		boolean detected = hasHardKandarinDiary();
+		if (detected != hardKandarinDiary)
+		{
+			hardKandarinDiary = detected;
+			refreshLapThresholds();
+		}
+		return detected;
+	}
+
 	private void updateKandarinDetectedConfigIfNeeded()
 	{
 		if (kandarinDetectionConfigUpdated)
@@ -551,17 +1125,17 @@ public class MarksOfGraceCDPlugin extends Plugin
 			return;
 		}
 
-		boolean detected = hasHardKandarinDiary();
+		boolean detected = updateHardKandarinDiary();
 		// Respect the override - don't change the UI value if user manually set override true
 		// We still want the UI to show true when detected or when user has assume override
-		if (config.assumeHardKandarinDiary())
+		if (settings.assumeHardKandarinDiary())
 		{
 			// if user has set the assume override, show detected as true in UI as well
-			configManager.setConfiguration("AfkMarksCanafis", "kandarinDiaryDetected", true);
+			configManager.setConfiguration(MarksOfGraceCDConfig.GROUP, "kandarinDiaryDetected", true);
 		}
 		else
 		{
-			configManager.setConfiguration("AfkMarksCanafis", "kandarinDiaryDetected", detected);
+			configManager.setConfiguration(MarksOfGraceCDConfig.GROUP, "kandarinDiaryDetected", detected);
 		}
 
 		kandarinDetectionConfigUpdated = true;
@@ -572,9 +1146,10 @@ public class MarksOfGraceCDPlugin extends Plugin
 	 */
 	private void checkNtpSync()
 	{
-		if (config.enableNtpSync() && NtpClient.getSyncState() == NtpSyncState.NOT_SYNCED)
+		PluginScheduler current = scheduler;
+		if (current != null && settings.enableNtpSync() && NtpClient.getSyncState() == NtpSyncState.NOT_SYNCED)
 		{
-			NtpClient.startSync();
+			NtpClient.startSync(current);
 		}
 	}
 
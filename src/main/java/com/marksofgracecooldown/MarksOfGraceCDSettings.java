@@ -0,0 +1,94 @@
+package com.marksofgracecooldown;
+
+import java.awt.Color;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import net.runelite.client.config.Notification;
+
+/**
+ * Immutable copy of {@link MarksOfGraceCDConfig}.
+ * <p>
+ * Every call on the config interface goes through RuneLite's config proxy and a ConfigManager
+ * string lookup. The plugin builds one of these when it starts and whenever the config group
+ * changes, so the per-frame and per-event code reads plain fields instead. Accessors use the
+ * same names as the config methods.
+ */
+@Getter
+@Accessors(fluent = true)
+final class MarksOfGraceCDSettings
+{
+	static final MarksOfGraceCDSettings DEFAULTS = from(new MarksOfGraceCDConfig()
+	{
+	});
+
+	private final Notification notifyMarksOfGraceCD;
+	private final int lapTimeBuffer;
+	private final MarksOfGraceCDConfig.SwapLeftClickMode swapLeftClickMode;
+	private final MarksOfGraceCDConfig.HighlightClickBoxesMode highlightClickBoxesMode;
+	private final Color cooldownHighlightColor;
+	private final Color xpHighlightColor;
+	private final boolean useCustomLapTime;
+	private final int customLapTimeSeconds;
+	private final boolean useShortArdougneTimer;
+	private final boolean useSeersTeleport;
+	private final boolean assumeHardKandarinDiary;
+	private final boolean enableNtpSync;
+	private final boolean enableWorldPing;
+	private final int pingRefreshInterval;
+	private final int timerBufferSeconds;
+	private final int inactivityTimeoutMinutes;
+	private final boolean showDebugValues;
+	private final boolean recordLapHistory;
+	private final boolean useObservedLapTime;
+	private final int observedLapPercentile;
+	private final boolean showSessionStats;
+	private final boolean showLapPlan;
+	@Getter(lombok.AccessLevel.NONE)
+	private final boolean[] enabledCourses;
+
+	private MarksOfGraceCDSettings(MarksOfGraceCDConfig config)
+	{
+		notifyMarksOfGraceCD = config.notifyMarksOfGraceCD();
+		lapTimeBuffer = config.lapTimeBuffer();
+		swapLeftClickMode = config.swapLeftClickMode();
+		highlightClickBoxesMode = config.highlightClickBoxesMode();
+		cooldownHighlightColor = config.CooldownHighlightColor();
+		xpHighlightColor = config.XpHighlightColor();
+		useCustomLapTime = config.useCustomLapTime();
+		customLapTimeSeconds = config.customLapTimeSeconds();
+		useShortArdougneTimer = config.useShortArdougneTimer();
+		useSeersTeleport = config.useSeersTeleport();
+		assumeHardKandarinDiary = config.assumeHardKandarinDiary();
+		enableNtpSync = config.enableNtpSync();
+		enableWorldPing = config.enableWorldPing();
+		pingRefreshInterval = config.pingRefreshInterval();
+		timerBufferSeconds = config.timerBufferSeconds();
+		inactivityTimeoutMinutes = config.inactivityTimeoutMinutes();
+		showDebugValues = config.showDebugValues();
+		recordLapHistory = config.recordLapHistory();
+		useObservedLapTime = config.useObservedLapTime();
+		observedLapPercentile = config.observedLapPercentile();
+		showSessionStats = config.showSessionStats();
+		showLapPlan = config.showLapPlan();
+
+		Courses[] courses = Courses.values();
+		enabledCourses = new boolean[courses.length];
+		for (Courses course : courses)
+		{
+			enabledCourses[course.ordinal()] = course.isEnabled(config);
+		}
+	}
+
+	static MarksOfGraceCDSettings from(MarksOfGraceCDConfig config)
+	{
+		return new MarksOfGraceCDSettings(config);
+	}
+
+	/**
+	 * Per-course toggle lookup; a null course counts as enabled.
+	 */
+	boolean isCourseEnabled(Courses course)
+	{
+		return course == null || enabledCourses[course.ordinal()];
+	}
+}
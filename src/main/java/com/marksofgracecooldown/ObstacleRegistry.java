@@ -0,0 +1,131 @@
+package com.marksofgracecooldown;
+
+import java.util.Arrays;
+import net.runelite.api.TileObject;
+
+/**
+ * Final obstacles currently in the scene, grouped by course.
+ * <p>
+ * A course can have several final obstacles (Gnome's two pipes, Werewolf's three slides), and
+ * each one is kept. Storage is dense per course, indexed by ordinal like an {@code EnumMap}: a
+ * small array of instances and a count. Adding appends, and removing swaps the last instance into
+ * the freed slot. A course only ever has a handful of instances, so the identity match is a
+ * couple of compares and nothing allocates once the arrays have grown. Client thread only.
+ */
+final class ObstacleRegistry
+{
+	private static final int INITIAL_CAPACITY = 2;
+
+	private final TileObject[][] obstacles = new TileObject[Courses.values().length][];
+	private final int[] counts = new int[Courses.values().length];
+	private int size;
+
+	/**
+	 * Adds an obstacle instance to its course; adding the same instance twice keeps one.
+	 */
+	void add(Courses course, TileObject obstacle)
+	{
+		int ordinal = course.ordinal();
+		if (indexOf(ordinal, obstacle) >= 0)
+		{
+			return;
+		}
+
+		TileObject[] instances = obstacles[ordinal];
+		int count = counts[ordinal];
+		if (instances == null)
+		{
+			instances = obstacles[ordinal] = new TileObject[INITIAL_CAPACITY];
+		}
+		else if (count == instances.length)
+		{
+			instances = obstacles[ordinal] = Arrays.copyOf(instances, count * 2);
+		}
+		instances[count] = obstacle;
+		counts[ordinal] = count + 1;
+		size++;
+	}
+
+	/**
+	 * Removes the instance from the course if present.
+	 *
+	 * @return whether it was present
+	 */
+	boolean remove(Courses course, TileObject obstacle)
+	{
+		int ordinal = course.ordinal();
+		int index = indexOf(ordinal, obstacle);
+		if (index < 0)
+		{
+			return false;
+		}
+
+		TileObject[] instances = obstacles[ordinal];
+		int last = --counts[ordinal];
+		instances[index] = instances[last];
+		instances[last] = null;
+		size--;
+		return true;
+	}
+
+	/**
+	 * Number of the course's final obstacles in the scene.
+	 */
+	int count(Courses course)
+	{
+		return counts[course.ordinal()];
+	}
+
+	/**
+	 * Returns the course's obstacle at {@code index}, from 0 to {@link #count(Courses)} - 1. The
+	 * order changes when an obstacle is removed.
+	 */
+	TileObject get(Courses course, int index)
+	{
+		int ordinal = course.ordinal();
+		if (index < 0 || index >= counts[ordinal])
+		{
+			throw new IndexOutOfBoundsException("index " + index + ", count " + counts[ordinal]);
+		}
+		return obstacles[ordinal][index];
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Forgets every obstacle, keeping the arrays for the next scene.
+	 */
+	void clear()
+	{
+		for (int ordinal = 0; ordinal < counts.length; ordinal++)
+		{
+			if (obstacles[ordinal] != null)
+			{
+				Arrays.fill(obstacles[ordinal], null);
+			}
+			counts[ordinal] = 0;
+		}
+		size = 0;
+	}
+
+	private int indexOf(int ordinal, TileObject obstacle)
+	{
+		TileObject[] instances = obstacles[ordinal];
+		for (int i = 0, count = counts[ordinal]; i < count; i++)
+		{
+			if (instances[i] == obstacle)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+}
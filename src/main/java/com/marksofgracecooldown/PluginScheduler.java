@@ -0,0 +1,145 @@
+package com.marksofgracecooldown;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The plugin's single background scheduler, created in startUp and shut down in shutDown.
+ * It owns world ping refresh, NTP sync and any other background job, so nothing outlives the plugin.
+ * <p>
+ * Threads are virtual when the runtime supports them, and daemon platform threads otherwise.
+ * Queue depth, start latency (how late a task started versus when it was due) and run time are
+ * tracked for the debug overlay.
+ */
+final class PluginScheduler extends ScheduledThreadPoolExecutor
+{
+	// Ping refresh blocks on the network, so give NTP bursts a second thread rather than queueing behind it
+	private static final int THREADS = 2;
+
+	private final boolean virtualThreads;
+	private final AtomicLong tasksRun = new AtomicLong();
+	private final AtomicLong totalStartDelayNanos = new AtomicLong();
+	private final AtomicLong maxStartDelayNanos = new AtomicLong();
+	private final AtomicLong totalRunNanos = new AtomicLong();
+	private final ThreadLocal<Long> runStartNanos = new ThreadLocal<>();
+
+	private PluginScheduler(ThreadFactory threadFactory, boolean virtualThreads)
+	{
+		super(THREADS, threadFactory);
+		this.virtualThreads = virtualThreads;
+		// Cancelled jobs (e.g. a rescheduled NTP sync) should not sit in the queue until their delay expires
+		setRemoveOnCancelPolicy(true);
+		// Self-rescheduling jobs like the ping refresh must not fire after shutdown; immediate jobs still run
+		setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	static PluginScheduler create(String name)
+	{
+		ThreadFactory virtual = virtualThreadFactory(name);
+		if (virtual != null)
+		{
+			return new PluginScheduler(virtual, true);
+		}
+
+		AtomicInteger threadCount = new AtomicInteger();
+		return new PluginScheduler(r ->
+		{
+			Thread thread = new Thread(r, name + "-" + threadCount.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}, false);
+	}
+
+	// Thread.ofVirtual() is only available on Java 21+, so it is looked up reflectively
+	private static ThreadFactory virtualThreadFactory(String name)
+	{
+		try
+		{
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+			builder = nameMethod.invoke(builder, name + "-", 0L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		}
+		catch (ReflectiveOperationException | RuntimeException e)
+		{
+			return null;
+		}
+	}
+
+	@Override
+	protected void beforeExecute(Thread thread, Runnable task)
+	{
+		super.beforeExecute(thread, task);
+		if (task instanceof RunnableScheduledFuture)
+		{
+			// A negative remaining delay is how late the task started
+			long startDelay = Math.max(0, -((Delayed) task).getDelay(TimeUnit.NANOSECONDS));
+			totalStartDelayNanos.addAndGet(startDelay);
+			maxStartDelayNanos.accumulateAndGet(startDelay, Math::max);
+		}
+		runStartNanos.set(System.nanoTime());
+	}
+
+	@Override
+	protected void afterExecute(Runnable task, Throwable failure)
+	{
+		super.afterExecute(task, failure);
+		Long start = runStartNanos.get();
+		if (start != null)
+		{
+			totalRunNanos.addAndGet(System.nanoTime() - start);
+			runStartNanos.remove();
+		}
+		tasksRun.incrementAndGet();
+	}
+
+	boolean usesVirtualThreads()
+	{
+		return virtualThreads;
+	}
+
+	/**
+	 * Number of jobs waiting in the queue, including periodic jobs waiting for their next run.
+	 */
+	int getQueueDepth()
+	{
+		return getQueue().size();
+	}
+
+	long getTasksRun()
+	{
+		return tasksRun.get();
+	}
+
+	long getAverageStartDelayMillis()
+	{
+		long runs = tasksRun.get();
+		return runs == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalStartDelayNanos.get() / runs);
+	}
+
+	long getMaxStartDelayMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(maxStartDelayNanos.get());
+	}
+
+	long getAverageRunMillis()
+	{
+		long runs = tasksRun.get();
+		return runs == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalRunNanos.get() / runs);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "PluginScheduler[queued=" + getQueueDepth() + ", run=" + getTasksRun()
+			+ ", avgDelay=" + getAverageStartDelayMillis() + "ms, maxDelay=" + getMaxStartDelayMillis()
+			+ "ms, avgRun=" + getAverageRunMillis() + "ms, virtual=" + virtualThreads + "]";
+	}
+}
@@ -0,0 +1,83 @@
+package com.marksofgracecooldown;
+
+/**
+ * Smoothed round-trip time estimate for the current world, in the style of TCP's retransmission
+ * timer (RFC 6298): SRTT is an exponentially weighted moving average of the samples and RTTVAR
+ * tracks their mean deviation, which serves as the jitter.
+ * <p>
+ * A single spiky sample only moves SRTT by an eighth of its deviation, so one slow ping no longer
+ * shifts the cooldown timer. Samples come from the background scheduler while the estimate is read
+ * on the client thread, hence the synchronization.
+ */
+final class RttEstimator
+{
+	// RFC 6298 gains: alpha = 1/8 for SRTT, beta = 1/4 for RTTVAR
+	private static final double ALPHA = 1.0 / 8;
+	private static final double BETA = 1.0 / 4;
+
+	private double smoothedRtt = -1;
+	private double rttVariance = -1;
+	private int samples;
+
+	/**
+	 * Adds a round-trip sample in milliseconds; negative values (failed pings) are ignored.
+	 */
+	synchronized void addSample(int rttMillis)
+	{
+		if (rttMillis < 0)
+		{
+			return;
+		}
+
+		if (samples == 0)
+		{
+			smoothedRtt = rttMillis;
+			rttVariance = rttMillis / 2.0;
+		}
+		else
+		{
+			rttVariance = (1 - BETA) * rttVariance + BETA * Math.abs(smoothedRtt - rttMillis);
+			smoothedRtt = (1 - ALPHA) * smoothedRtt + ALPHA * rttMillis;
+		}
+		samples++;
+	}
+
+	synchronized void reset()
+	{
+		smoothedRtt = -1;
+		rttVariance = -1;
+		samples = 0;
+	}
+
+	/**
+	 * @return the smoothed round-trip time in ms, or -1 if there are no samples
+	 */
+	synchronized int getSmoothedRttMillis()
+	{
+		return samples == 0 ? -1 : (int) Math.round(smoothedRtt);
+	}
+
+	/**
+	 * @return the round-trip variation (jitter) in ms, or -1 if there are no samples
+	 */
+	synchronized int getJitterMillis()
+	{
+		return samples == 0 ? -1 : (int) Math.round(rttVariance);
+	}
+
+	/**
+	 * Round trip to compensate the cooldown timer with: SRTT less one jitter, so that a path that is
+	 * currently faster than average does not make the timer say "Run" before the server is ready.
+	 *
+	 * @return the compensation in ms, or -1 if there are no samples
+	 */
+	synchronized int getCompensationRttMillis()
+	{
+		return samples == 0 ? -1 : (int) Math.round(Math.max(0, smoothedRtt - rttVariance));
+	}
+
+	synchronized int getSampleCount()
+	{
+		return samples;
+	}
+}
@@ -0,0 +1,147 @@
+package com.marksofgracecooldown;
+
+import java.util.function.Consumer;
+import net.runelite.api.GameObject;
+import net.runelite.api.Tile;
+import net.runelite.api.TileObject;
+import net.runelite.api.events.ClientTick;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
+
+/**
+ * Walks the tiles of an already loaded scene and hands every object on them to a sink, so the
+ * obstacle index can be rebuilt when the plugin starts while the player is on a course (the
+ * spawn events for that scene were sent before the plugin was listening).
+ * <p>
+ * The scan is time-sliced: each client tick covers at most {@link #TILES_PER_SLICE} tiles and
+ * resumes where the previous one stopped, so even an extended draw distance scene is spread over
+ * a few frames instead of causing a hitch. The scanner is only registered on the event bus while
+ * a scan is running. Client thread only.
+ */
+final class SceneScanner
+{
+	static final int TILES_PER_SLICE = 2048;
+
+	private final EventBus eventBus;
+	private final Consumer<TileObject> sink;
+
+	private Tile[][][] tiles;
+	// next tile to scan
+	private int plane;
+	private int x;
+	private int y;
+
+	SceneScanner(EventBus eventBus, Consumer<TileObject> sink)
+	{
+		this.eventBus = eventBus;
+		this.sink = sink;
+	}
+
+	/**
+	 * Starts scanning {@code tiles} ({@code [plane][x][y]}, as from {@code Scene.getTiles()}),
+	 * replacing any scan in progress.
+	 */
+	void start(Tile[][][] tiles)
+	{
+		boolean wasScanning = isScanning();
+		this.tiles = tiles;
+		plane = 0;
+		x = 0;
+		y = 0;
+		if (!wasScanning && tiles != null)
+		{
+			eventBus.register(this);
+		}
+		else if (wasScanning && tiles == null)
+		{
+			eventBus.unregister(this);
+		}
+	}
+
+	/**
+	 * Stops the scan in progress, e.g. because a region load replaces the scene.
+	 */
+	void cancel()
+	{
+		if (isScanning())
+		{
+			tiles = null;
+			eventBus.unregister(this);
+		}
+	}
+
+	boolean isScanning()
+	{
+		return tiles != null;
+	}
+
+	@Subscribe
+	public void onClientTick(ClientTick event)
+	{
+		scanSlice(TILES_PER_SLICE);
+	}
+
+	/**
+	 * Scans up to {@code budget} tiles from where the last slice stopped.
+	 *
+	 * @return whether tiles are left for another slice
+	 */
+	boolean scanSlice(int budget)
+	{
+		Tile[][][] scene = tiles;
+		if (scene == null)
+		{
+			return false;
+		}
+
+		for (; plane < scene.length; plane++, x = 0)
+		{
+			Tile[][] planeTiles = scene[plane];
+			for (; planeTiles != null && x < planeTiles.length; x++, y = 0)
+			{
+				Tile[] column = planeTiles[x];
+				for (; column != null && y < column.length; y++)
+				{
+					if (budget-- <= 0)
+					{
+						return true;
+					}
+					Tile tile = column[y];
+					if (tile != null)
+					{
+						scanTile(tile);
+					}
+				}
+			}
+		}
+
+		cancel();
+		return false;
+	}
+
+	private void scanTile(Tile tile)
+	{
+		GameObject[] gameObjects = tile.getGameObjects();
+		if (gameObjects != null)
+		{
+			for (GameObject gameObject : gameObjects)
+			{
+				if (gameObject != null)
+				{
+					sink.accept(gameObject);
+				}
+			}
+		}
+		accept(tile.getGroundObject());
+		accept(tile.getWallObject());
+		accept(tile.getDecorativeObject());
+	}
+
+	private void accept(TileObject object)
+	{
+		if (object != null)
+		{
+			sink.accept(object);
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package com.marksofgracecooldown;
+
+import java.util.Arrays;
+
+/**
+ * Session efficiency over a sliding one-hour window: marks collected, laps, agility XP and time
+ * spent waiting at the last obstacle for the cooldown.
+ * <p>
+ * Events land in one-minute buckets of a ring, with running totals kept alongside, so recording an
+ * event and reading a rate are O(1); moving into a new minute clears the buckets that fell out of
+ * the window. Only used from the client thread.
+ */
+final class SessionTracker
+{
+	static final long BUCKET_MILLIS = 60_000;
+	static final int BUCKETS = 60;
+	// Rates over less than this are too noisy to show
+	static final long MIN_WINDOW_MILLIS = 60_000;
+	private static final double MILLIS_PER_HOUR = 3_600_000.0;
+
+	private final int[] marks = new int[BUCKETS];
+	private final int[] laps = new int[BUCKETS];
+	private final long[] xp = new long[BUCKETS];
+	private final long[] waitingMillis = new long[BUCKETS];
+
+	private int totalMarks;
+	private int totalLaps;
+	private long totalXp;
+	private long totalWaitingMillis;
+
+	private long startMillis = -1;
+	private long currentMinute;
+
+	void recordMarks(long nowMillis, int count)
+	{
+		int bucket = bucket(nowMillis);
+		marks[bucket] += count;
+		totalMarks += count;
+	}
+
+	void recordLap(long nowMillis)
+	{
+		int bucket = bucket(nowMillis);
+		laps[bucket]++;
+		totalLaps++;
+	}
+
+	void recordXp(long nowMillis, long gained)
+	{
+		int bucket = bucket(nowMillis);
+		xp[bucket] += gained;
+		totalXp += gained;
+	}
+
+	void recordWaiting(long nowMillis, long millis)
+	{
+		int bucket = bucket(nowMillis);
+		waitingMillis[bucket] += millis;
+		totalWaitingMillis += millis;
+	}
+
+	/**
+	 * @return marks per hour over the window, or -1 if the window is still too short
+	 */
+	double getMarksPerHour(long nowMillis)
+	{
+		long window = windowMillis(nowMillis);
+		return perHour(window, totalMarks);
+	}
+
+	/**
+	 * @return laps per hour over the window, or -1 if the window is still too short
+	 */
+	double getLapsPerHour(long nowMillis)
+	{
+		long window = windowMillis(nowMillis);
+		return perHour(window, totalLaps);
+	}
+
+	/**
+	 * @return agility XP per hour over the window, or -1 if the window is still too short
+	 */
+	double getXpPerHour(long nowMillis)
+	{
+		long window = windowMillis(nowMillis);
+		return perHour(window, totalXp);
+	}
+
+	/**
+	 * @return the share of the window spent waiting for the cooldown (0 to 1), or -1 if the window is still too short
+	 */
+	double getWaitingFraction(long nowMillis)
+	{
+		long window = windowMillis(nowMillis);
+		return window < MIN_WINDOW_MILLIS ? -1 : Math.min(1.0, (double) totalWaitingMillis / window);
+	}
+
+	void reset()
+	{
+		Arrays.fill(marks, 0);
+		Arrays.fill(laps, 0);
+		Arrays.fill(xp, 0);
+		Arrays.fill(waitingMillis, 0);
+		totalMarks = 0;
+		totalLaps = 0;
+		totalXp = 0;
+		totalWaitingMillis = 0;
+		startMillis = -1;
+	}
+
+	private static double perHour(long window, long total)
+	{
+		return window < MIN_WINDOW_MILLIS ? -1 : total * MILLIS_PER_HOUR / window;
+	}
+
+	// Expires old buckets, then returns the span they cover: from the session start or the oldest
+	// bucket, whichever is later. Call before reading the totals.
+	private long windowMillis(long nowMillis)
+	{
+		if (startMillis < 0)
+		{
+			return 0;
+		}
+		advance(Math.floorDiv(nowMillis, BUCKET_MILLIS));
+		long oldestRetained = (currentMinute - BUCKETS + 1) * BUCKET_MILLIS;
+		return nowMillis - Math.max(startMillis, oldestRetained);
+	}
+
+	private int bucket(long nowMillis)
+	{
+		long minute = Math.floorDiv(nowMillis, BUCKET_MILLIS);
+		if (startMillis < 0)
+		{
+			startMillis = nowMillis;
+			currentMinute = minute;
+		}
+		advance(minute);
+		return (int) Math.floorMod(currentMinute, (long) BUCKETS);
+	}
+
+	// Clears the buckets between the current minute and the new one; time never runs backwards here
+	private void advance(long minute)
+	{
+		if (minute <= currentMinute)
+		{
+			return;
+		}
+
+		long steps = Math.min(minute - currentMinute, BUCKETS);
+		for (long i = 1; i <= steps; i++)
+		{
+			int index = (int) Math.floorMod(currentMinute + i, (long) BUCKETS);
+			totalMarks -= marks[index];
+			totalLaps -= laps[index];
+			totalXp -= xp[index];
+			totalWaitingMillis -= waitingMillis[index];
+			marks[index] = 0;
+			laps[index] = 0;
+			xp[index] = 0;
+			waitingMillis[index] = 0;
+		}
+		currentMinute = minute;
+	}
+}
@@ -0,0 +1,86 @@
+package com.marksofgracecooldown;
+
+/**
+ * Preformatted strings for the values the overlays show every frame, so drawing a timer or a
+ * latency line doesn't go through {@code String.format} or build a new string.
+ * <p>
+ * Times are kept as "m:ss" for a whole hour, which covers any cooldown or lap; latencies as
+ * "123ms" and "+123ms" for anything under a second. Values outside the tables are formatted the
+ * slow way, with the same output.
+ */
+final class TimeText
+{
+	static final int SECONDS_PER_HOUR = 3600;
+	static final int MAX_TABLE_MILLIS = 999;
+
+	private static final String[] MINUTES_SECONDS = new String[SECONDS_PER_HOUR];
+	private static final String[] MILLIS = new String[MAX_TABLE_MILLIS + 1];
+	// index MAX_TABLE_MILLIS is +0ms; below it negative, above it positive
+	private static final String[] SIGNED_MILLIS = new String[2 * MAX_TABLE_MILLIS + 1];
+
+	static
+	{
+		for (int seconds = 0; seconds < SECONDS_PER_HOUR; seconds++)
+		{
+			MINUTES_SECONDS[seconds] = formatMinutesSeconds(seconds);
+		}
+		for (int millis = 0; millis <= MAX_TABLE_MILLIS; millis++)
+		{
+			MILLIS[millis] = millis + "ms";
+		}
+		for (int millis = -MAX_TABLE_MILLIS; millis <= MAX_TABLE_MILLIS; millis++)
+		{
+			SIGNED_MILLIS[millis + MAX_TABLE_MILLIS] = formatSignedMillis(millis);
+		}
+	}
+
+	private TimeText()
+	{
+	}
+
+	/**
+	 * "m:ss" within the hour, e.g. 75 -> "1:15"; hours are dropped as the overlay always did.
+	 */
+	static String minutesSeconds(long totalSeconds)
+	{
+		if (totalSeconds >= 0)
+		{
+			return MINUTES_SECONDS[(int) (totalSeconds % SECONDS_PER_HOUR)];
+		}
+		return formatMinutesSeconds(totalSeconds);
+	}
+
+	/**
+	 * A latency such as a ping, e.g. 42 -> "42ms".
+	 */
+	static String millis(long millis)
+	{
+		if (millis >= 0 && millis <= MAX_TABLE_MILLIS)
+		{
+			return MILLIS[(int) millis];
+		}
+		return millis + "ms";
+	}
+
+	/**
+	 * A clock offset with its sign, e.g. 42 -> "+42ms", -7 -> "-7ms".
+	 */
+	static String signedMillis(long millis)
+	{
+		if (millis >= -MAX_TABLE_MILLIS && millis <= MAX_TABLE_MILLIS)
+		{
+			return SIGNED_MILLIS[(int) millis + MAX_TABLE_MILLIS];
+		}
+		return formatSignedMillis(millis);
+	}
+
+	private static String formatMinutesSeconds(long totalSeconds)
+	{
+		return String.format("%d:%02d", (totalSeconds % SECONDS_PER_HOUR) / 60, totalSeconds % 60);
+	}
+
+	private static String formatSignedMillis(long millis)
+	{
+		return (millis >= 0 ? "+" : "") + millis + "ms";
+	}
+}
@@ -0,0 +1,86 @@
+package com.marksofgracecooldown.ntp;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Epoch-millisecond clock that reads the wall clock once and then advances on a monotonic
+ * nanosecond source.
+ * <p>
+ * A system clock step (manual change, or the OS correcting itself between our NTP syncs) therefore
+ * no longer moves timestamps taken before and after it relative to each other, so an in-progress
+ * cooldown keeps counting down correctly. {@link NtpClient} measures its offset on this same
+ * timescale, so the periodic re-discipline also absorbs any drift between the two clocks.
+ * <p>
+ * The nanosecond source may stop while the machine is suspended, leaving the clock behind the wall
+ * clock by the time spent asleep. Callers re-anchor it with {@link #reanchor(long)} whenever no
+ * interval they are timing would be disturbed by the step.
+ * Reading the clock does not allocate.
+ */
+public final class MonotonicClock
+{
+	/**
+	 * Shared clock anchored to the system clock; the plugin and {@link NtpClient} must use the same instance.
+	 */
+	public static final MonotonicClock SYSTEM = new MonotonicClock(System::currentTimeMillis, System::nanoTime);
+
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+
+	private final LongSupplier wallMillis;
+	private final LongSupplier nanoSource;
+	// Replaced wholesale so readers on other threads never pair one anchor's millis with another's nanos
+	private volatile Anchor anchor;
+
+	/**
+	 * @param wallMillis read to anchor the clock to epoch milliseconds
+	 * @param nanoSource monotonic nanosecond source the clock advances on
+	 */
+	public MonotonicClock(LongSupplier wallMillis, LongSupplier nanoSource)
+	{
+		this.wallMillis = wallMillis;
+		this.nanoSource = nanoSource;
+		this.anchor = new Anchor(wallMillis.getAsLong(), nanoSource.getAsLong());
+	}
+
+	/**
+	 * Returns the current time in milliseconds since the epoch, on the anchored timescale.
+	 */
+	public long millis()
+	{
+		Anchor current = anchor;
+		return current.millis + (nanoSource.getAsLong() - current.nanos) / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * Anchors the clock to the wall clock again if the two have drifted more than
+	 * {@code maxDriftMillis} apart. Timestamps taken before a re-anchor are not comparable with
+	 * ones taken after it, so only call this while nothing is being timed.
+	 *
+	 * @return whether the clock was re-anchored
+	 */
+	public boolean reanchor(long maxDriftMillis)
+	{
+		long nanos = nanoSource.getAsLong();
+		long wall = wallMillis.getAsLong();
+		Anchor current = anchor;
+		long millis = current.millis + (nanos - current.nanos) / NANOS_PER_MILLI;
+		if (Math.abs(wall - millis) <= maxDriftMillis)
+		{
+			return false;
+		}
+
+		anchor = new Anchor(wall, nanos);
+		return true;
+	}
+
+	private static final class Anchor
+	{
+		private final long millis;
+		private final long nanos;
+
+		private Anchor(long millis, long nanos)
+		{
+			this.millis = millis;
+			this.nanos = nanos;
+		}
+	}
+}
@@ -1,10 +1,13 @@
 package com.marksofgracecooldown.ntp;
 
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
-import java.time.Instant;
-import java.util.concurrent.atomic.AtomicReference;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -12,41 +15,120 @@ import lombok.extern.slf4j.Slf4j;
  * NTP client for synchronizing time with an NTP server.
  * Corrects for users whose system clocks are out of sync,
  * ensuring accurate cooldown calculations.
+ * <p>
+ * Each sync takes a burst of samples from every server, querying all servers in parallel
+ * through {@link NtpQueryChannel}. Offset and delay come from the full four-timestamp exchange
+ * and are combined with {@link NtpSampleFilter}. After a successful sync the clock is
+ * re-disciplined periodically until {@link #stopSync()}.
+ * <p>
+ * The client owns no threads: all work runs on the executor passed to {@link #startSync}.
  */
 @Slf4j
 public class NtpClient
 {
 	private static final String[] NTP_HOSTS = {"pool.ntp.org", "time.google.com", "time.cloudflare.com"};
 	private static final int NTP_PORT = 123;
-	private static final int SOCKET_TIMEOUT_MS = 5000;
-	private static final int SYNC_ATTEMPTS = 3;
-	private static final int RETRY_DELAY_MS = 2000;
+	private static final int NTP_PACKET_SIZE = 48;
+	private static final long ROUND_TIMEOUT_MS = 1000;
+	private static final int BURST_SAMPLES = 4;
+	private static final long BURST_SPACING_MS = 250;
+	private static final long RESYNC_INTERVAL_MINUTES = 30;
+	private static final long RETRY_DELAY_MINUTES = 2;
 
 	private static final long MILLIS_PER_SECOND = 1000L;
 	private static final long UNIX_OFFSET_SECONDS = 2208988800L;
 	private static final long NTP_CYCLE_MILLIS = (Integer.toUnsignedLong(0xffffffff) + 1) * MILLIS_PER_SECOND;
-	private static final AtomicReference<Thread> syncThread = new AtomicReference<>(null);
+
+	// Bumped by every startSync and stopSync; a sync only acts on its outcome while its generation is current
+	private static int generation;
+	private static boolean syncRunning;
+	private static ScheduledExecutorService executor;
+	private static ScheduledFuture<?> nextSync;
+	private static NtpQueryChannel queryChannel;
+
 	@Getter
 	private static volatile long syncedOffsetMillis = 0;
 	@Getter
 	private static volatile NtpSyncState syncState = NtpSyncState.NOT_SYNCED;
 
 	/**
-	 * Starts an asynchronous NTP time sync if not already syncing.
+	 * Starts an asynchronous NTP time sync on {@code executor} unless one is already running on it.
+	 * The periodic re-discipline is scheduled on the same executor until {@link #stopSync()}.
+	 * A sync left running on a previous executor is superseded: it finishes without rescheduling
+	 * and without touching this executor's socket.
 	 */
-	public static void startSync()
+	public static synchronized void startSync(ScheduledExecutorService executor)
 	{
-		if (syncState == NtpSyncState.SYNCING)
+		if (syncRunning && executor == NtpClient.executor)
 		{
 			return;
 		}
 
-		Thread newThread = new Thread(NtpClient::syncTime, "NtpClient-Sync");
-		newThread.setDaemon(true);
+		NtpClient.executor = executor;
+		int syncGeneration = ++generation;
+		syncRunning = true;
+
+		// Keep showing SYNCED while re-disciplining an already synced clock
+		if (syncState != NtpSyncState.SYNCED)
+		{
+			syncState = NtpSyncState.SYNCING;
+		}
+
+		try
+		{
+			executor.execute(() -> syncTime(syncGeneration));
+		}
+		catch (RejectedExecutionException e)
+		{
+			log.debug("NTP sync not started, executor is shut down");
+			syncRunning = false;
+			NtpClient.executor = null;
+			if (syncState == NtpSyncState.SYNCING)
+			{
+				syncState = NtpSyncState.NOT_SYNCED;
+			}
+		}
+	}
+
+	/**
+	 * Cancels any scheduled re-discipline, releases the socket and detaches from the executor.
+	 * An in-flight sync still completes but no longer reschedules itself.
+	 */
+	public static synchronized void stopSync()
+	{
+		generation++;
+		syncRunning = false;
+		cancelNextSync();
+		NtpQueryChannel channel = queryChannel;
+		queryChannel = null;
+		if (executor != null)
+		{
+			if (channel != null)
+			{
+				try
+				{
+					// The channel is only used from the executor, so close it there too
+					executor.execute(() -> closeQueryChannel(channel));
+				}
+				catch (RejectedExecutionException e)
+				{
+					closeQueryChannel(channel);
+				}
+			}
+			executor = null;
+		}
+		else
+		{
+			closeQueryChannel(channel);
+		}
+	}
 
-		if (syncThread.compareAndSet(null, newThread))
+	private static synchronized void cancelNextSync()
+	{
+		if (nextSync != null)
 		{
-			newThread.start();
+			nextSync.cancel(false);
+			nextSync = null;
 		}
 	}
 
@@ -57,93 +139,205 @@ public class NtpClient
 	{
 		if (syncState != NtpSyncState.SYNCING)
 		{
+			stopSync();
 			syncState = NtpSyncState.NOT_SYNCED;
 			syncedOffsetMillis = 0;
 		}
 	}
 
-	private static void syncTime()
+	private static void syncTime(int syncGeneration)
 	{
-		syncState = NtpSyncState.SYNCING;
-
 		try
 		{
-			for (String host : NTP_HOSTS)
+			Long offset = NtpSampleFilter.combine(collectSamples(syncGeneration));
+			if (offset != null)
+			{
+				syncedOffsetMillis = offset;
+				syncState = NtpSyncState.SYNCED;
+				log.debug("NTP sync successful: offset = {}ms", offset);
+				scheduleNextSync(syncGeneration, RESYNC_INTERVAL_MINUTES);
+			}
+			else
 			{
-				if (trySyncWithHost(host))
+				log.warn("NTP sync failed after trying all servers");
+				// A failed re-discipline keeps the last good offset
+				if (syncState != NtpSyncState.SYNCED)
 				{
-					return;
+					syncState = NtpSyncState.FAILED;
 				}
+				scheduleNextSync(syncGeneration, RETRY_DELAY_MINUTES);
+			}
+		}
+		catch (RuntimeException e)
+		{
+			log.warn("NTP sync failed", e);
+			if (syncState != NtpSyncState.SYNCED)
+			{
+				syncState = NtpSyncState.FAILED;
 			}
-			log.warn("NTP sync failed after trying all servers");
-			syncState = NtpSyncState.FAILED;
 		}
 		finally
 		{
-			syncThread.set(null);
+			syncFinished(syncGeneration);
 		}
 	}
 
-	private static boolean trySyncWithHost(String host)
+	private static synchronized void syncFinished(int syncGeneration)
 	{
-		for (int attempt = 0; attempt < SYNC_ATTEMPTS; attempt++)
+		if (syncGeneration == generation)
 		{
-			try
-			{
-				syncedOffsetMillis = queryNtpServer(host);
-				syncState = NtpSyncState.SYNCED;
-				log.debug("NTP sync successful with {}: offset = {}ms", host, syncedOffsetMillis);
-				return true;
-			}
-			catch (Exception e)
-			{
-				log.debug("NTP sync attempt {} with {} failed: {}", attempt + 1, host, e.getMessage());
-				sleepBeforeRetry(attempt);
-			}
+			syncRunning = false;
 		}
-		return false;
 	}
 
-	private static void sleepBeforeRetry(int attempt)
+	private static synchronized void scheduleNextSync(int syncGeneration, long delayMinutes)
 	{
-		if (attempt < SYNC_ATTEMPTS - 1)
+		ScheduledExecutorService current = executor;
+		if (syncGeneration != generation || current == null)
 		{
-			try
+			// Stopped or restarted while this sync was running
+			return;
+		}
+
+		cancelNextSync();
+		try
+		{
+			nextSync = current.schedule(() -> startSync(current), delayMinutes, TimeUnit.MINUTES);
+		}
+		catch (RejectedExecutionException e)
+		{
+			log.debug("NTP re-discipline not scheduled, executor is shut down");
+		}
+	}
+
+	private static List<NtpSample> collectSamples(int syncGeneration)
+	{
+		List<NtpSample> samples = new ArrayList<>(NTP_HOSTS.length * BURST_SAMPLES);
+		NtpQueryChannel channel = null;
+		try
+		{
+			for (int i = 0; i < BURST_SAMPLES; i++)
 			{
-				Thread.sleep(RETRY_DELAY_MS);
+				if (i > 0)
+				{
+					Thread.sleep(BURST_SPACING_MS);
+				}
+				// Checked every round so a superseded sync stops early and never shares the current socket
+				channel = queryChannel(syncGeneration);
+				if (channel == null)
+				{
+					break;
+				}
+				samples.addAll(channel.queryRound(ROUND_TIMEOUT_MS));
 			}
-			catch (InterruptedException ie)
+		}
+		catch (IOException e)
+		{
+			log.debug("NTP query failed: {}", e.getMessage());
+			discardQueryChannel(channel);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		return samples;
+	}
+
+	/**
+	 * @return the socket of the current sync generation, opening it if needed, or null if
+	 * {@code syncGeneration} has been superseded
+	 */
+	private static synchronized NtpQueryChannel queryChannel(int syncGeneration) throws IOException
+	{
+		if (syncGeneration != generation)
+		{
+			return null;
+		}
+		if (queryChannel == null)
+		{
+			queryChannel = new NtpQueryChannel(Arrays.asList(NTP_HOSTS), NTP_PORT);
+		}
+		return queryChannel;
+	}
+
+	private static void discardQueryChannel(NtpQueryChannel channel)
+	{
+		if (channel == null)
+		{
+			return;
+		}
+		synchronized (NtpClient.class)
+		{
+			if (queryChannel == channel)
 			{
-				Thread.currentThread().interrupt();
+				queryChannel = null;
 			}
 		}
+		closeQueryChannel(channel);
 	}
 
-	private static long queryNtpServer(String host) throws Exception
+	private static void closeQueryChannel(NtpQueryChannel channel)
 	{
-		try (DatagramSocket socket = new DatagramSocket())
+		if (channel == null)
 		{
-			socket.setSoTimeout(SOCKET_TIMEOUT_MS);
-
-			byte[] ntpData = new byte[48];
-			ntpData[0] = 0x1B; // NTP client request
+			return;
+		}
+		try
+		{
+			channel.close();
+		}
+		catch (IOException e)
+		{
+			log.debug("Failed to close NTP channel: {}", e.getMessage());
+		}
+	}
 
-			DatagramPacket request = new DatagramPacket(ntpData, ntpData.length,
-				InetAddress.getByName(host), NTP_PORT);
+	// Package-private for testing
+	static void writeRequest(byte[] request, long transmitNtpMillis)
+	{
+		Arrays.fill(request, (byte) 0);
+		request[0] = 0x1B; // LI = 0, VN = 3, Mode = 3 (client)
+		// The server echoes this back as its originate timestamp, letting us match the reply
+		writeNtpTimestamp(request, 40, transmitNtpMillis);
+	}
 
-			long sendTime = System.currentTimeMillis();
-			socket.send(request);
-			socket.receive(new DatagramPacket(ntpData, ntpData.length));
-			long receiveTime = System.currentTimeMillis();
+	/**
+	 * Validates a server reply and turns it into a sample.
+	 * Package-private for testing.
+	 */
+	static NtpSample parseResponse(String host, byte[] request, byte[] response, int length, long t1, long t4)
+		throws IOException
+	{
+		if (length < NTP_PACKET_SIZE)
+		{
+			throw new IOException("short NTP reply (" + length + " bytes)");
+		}
 
-			long serverNtpMillis = parseNtpTimestamp(ntpData, 40);
-			long localNtpMillis = Instant.now().plusSeconds(UNIX_OFFSET_SECONDS).toEpochMilli();
+		int leap = (response[0] >> 6) & 0x3;
+		int mode = response[0] & 0x7;
+		int stratum = response[1] & 0xff;
+		if (mode != 4)
+		{
+			throw new IOException("unexpected NTP mode " + mode);
+		}
+		if (leap == 3 || stratum == 0 || stratum > 15)
+		{
+			throw new IOException("server not synchronized (leap=" + leap + ", stratum=" + stratum + ")");
+		}
+		if (!Arrays.equals(response, 24, 32, request, 40, 48))
+		{
+			throw new IOException("originate timestamp does not match request");
+		}
 
-			long offset = calculateOffset(serverNtpMillis, localNtpMillis);
-			long networkDelay = (receiveTime - sendTime) / 2;
+		long t2 = parseNtpTimestamp(response, 32);
+		long t3 = parseNtpTimestamp(response, 40);
+		return NtpSample.fromTimestamps(host, t1, t2, t3, t4);
+	}
 
-			return offset - networkDelay;
-		}
+	// Read from the plugin's clock so the measured offset applies to the timescale it timestamps laps on
+	static long currentNtpMillis()
+	{
+		return MonotonicClock.SYSTEM.millis() + UNIX_OFFSET_SECONDS * MILLIS_PER_SECOND;
 	}
 
 	// Package-private for testing
@@ -154,6 +348,16 @@ public class NtpClient
 		return seconds * MILLIS_PER_SECOND + (fraction * MILLIS_PER_SECOND >> 32);
 	}
 
+	// Package-private for testing
+	static void writeNtpTimestamp(byte[] data, int offset, long ntpMillis)
+	{
+		long seconds = ntpMillis / MILLIS_PER_SECOND;
+		// Round the fraction up so parseNtpTimestamp reads back exactly the same millisecond
+		long fraction = (((ntpMillis % MILLIS_PER_SECOND) << 32) + MILLIS_PER_SECOND - 1) / MILLIS_PER_SECOND;
+		writeUnsignedInt(data, offset, seconds);
+		writeUnsignedInt(data, offset + 4, fraction);
+	}
+
 	// Package-private for testing
 	static long readUnsignedInt(byte[] data, int offset)
 	{
@@ -163,10 +367,20 @@ public class NtpClient
 			Byte.toUnsignedLong(data[offset + 3]);
 	}
 
-	private static long calculateOffset(long serverMillis, long localMillis)
+	private static void writeUnsignedInt(byte[] data, int offset, long value)
+	{
+		data[offset] = (byte) (value >>> 24);
+		data[offset + 1] = (byte) (value >>> 16);
+		data[offset + 2] = (byte) (value >>> 8);
+		data[offset + 3] = (byte) value;
+	}
+
+	/**
+	 * Maps a difference between two NTP timestamps into the nearest era,
+	 * handling the NTP timestamp rollover (year 2036).
+	 */
+	static long wrapDifference(long difference)
 	{
-		long difference = serverMillis - localMillis;
-		// Handle NTP timestamp rollover (year 2036)
 		if (Math.abs(difference) > NTP_CYCLE_MILLIS / 2)
 		{
 			return difference < 0 ? difference + NTP_CYCLE_MILLIS : difference - NTP_CYCLE_MILLIS;
@@ -174,4 +388,3 @@ public class NtpClient
 		return difference;
 	}
 }
-
@@ -0,0 +1,232 @@
+package com.marksofgracecooldown.ntp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Queries several NTP servers in parallel over a single non-blocking {@link DatagramChannel}.
+ * <p>
+ * One request per server is written back to back, then a {@link Selector} collects replies
+ * until every server has answered or the round times out, so a round costs one timeout at
+ * worst rather than one per server. Request/response buffers are direct and reused across
+ * rounds, and resolved addresses are cached so DNS is only hit again after a failed round.
+ * Instances are not thread-safe; {@link NtpClient} drives one from its scheduler thread.
+ */
+@Slf4j
+class NtpQueryChannel implements Closeable
+{
+	private static final int NTP_PACKET_SIZE = 48;
+	private static final long DNS_CACHE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private final List<String> hosts;
+	private final int port;
+	private final Map<String, ResolvedAddress> addressCache = new HashMap<>();
+
+	private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(NTP_PACKET_SIZE);
+	private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(NTP_PACKET_SIZE + 1);
+	private final byte[] requestBytes = new byte[NTP_PACKET_SIZE];
+	private final byte[] responseBytes = new byte[NTP_PACKET_SIZE];
+
+	private final DatagramChannel channel;
+	private final Selector selector;
+
+	NtpQueryChannel(List<String> hosts, int port) throws IOException
+	{
+		this.hosts = new ArrayList<>(hosts);
+		this.port = port;
+		this.channel = DatagramChannel.open();
+		this.channel.configureBlocking(false);
+		this.channel.bind(null);
+		this.selector = Selector.open();
+		this.channel.register(selector, SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Sends one request to every host and waits up to {@code timeoutMillis} for the replies.
+	 * Hosts that fail to resolve or do not answer in time are skipped.
+	 */
+	List<NtpSample> queryRound(long timeoutMillis) throws IOException
+	{
+		int count = hosts.size();
+		InetSocketAddress[] targets = new InetSocketAddress[count];
+		long[] t1 = new long[count];
+		long[] sendNanos = new long[count];
+		byte[][] transmitted = new byte[count][];
+
+		drainStaleReplies();
+
+		for (int i = 0; i < count; i++)
+		{
+			String host = hosts.get(i);
+			targets[i] = resolve(host);
+			if (targets[i] == null)
+			{
+				continue;
+			}
+
+			t1[i] = NtpClient.currentNtpMillis();
+			sendNanos[i] = System.nanoTime();
+			NtpClient.writeRequest(requestBytes, t1[i]);
+			transmitted[i] = requestBytes.clone();
+
+			sendBuffer.clear();
+			sendBuffer.put(requestBytes).flip();
+			try
+			{
+				if (channel.send(sendBuffer, targets[i]) == 0)
+				{
+					log.debug("NTP request to {} was not sent (socket buffer full)", host);
+					transmitted[i] = null;
+				}
+			}
+			catch (IOException e)
+			{
+				log.debug("NTP request to {} failed: {}", host, e.getMessage());
+				transmitted[i] = null;
+			}
+		}
+
+		List<NtpSample> samples = new ArrayList<>(count);
+		int pending = 0;
+		for (byte[] request : transmitted)
+		{
+			if (request != null)
+			{
+				pending++;
+			}
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		while (pending > 0)
+		{
+			long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remainingMillis <= 0 || selector.select(remainingMillis) == 0 && System.nanoTime() >= deadline)
+			{
+				break;
+			}
+			selector.selectedKeys().clear();
+
+			SocketAddress from;
+			receiveBuffer.clear();
+			while ((from = channel.receive(receiveBuffer)) != null)
+			{
+				long receiveNanos = System.nanoTime();
+				int index = indexOf(targets, transmitted, from);
+				receiveBuffer.flip();
+				int length = receiveBuffer.remaining();
+				if (index >= 0)
+				{
+					receiveBuffer.get(responseBytes, 0, Math.min(length, NTP_PACKET_SIZE));
+					long t4 = t1[index] + TimeUnit.NANOSECONDS.toMillis(receiveNanos - sendNanos[index]);
+					try
+					{
+						samples.add(NtpClient.parseResponse(hosts.get(index), transmitted[index], responseBytes,
+							length, t1[index], t4));
+						transmitted[index] = null;
+						pending--;
+					}
+					catch (IOException e)
+					{
+						// Keep waiting: a valid reply may still arrive before the deadline
+						log.debug("Ignoring NTP reply from {}: {}", hosts.get(index), e.getMessage());
+					}
+				}
+				receiveBuffer.clear();
+			}
+		}
+
+		// Force a fresh lookup next time for hosts that never answered, in case their address changed
+		for (int i = 0; i < count; i++)
+		{
+			if (transmitted[i] != null)
+			{
+				log.debug("No NTP reply from {} within {}ms", hosts.get(i), timeoutMillis);
+				addressCache.remove(hosts.get(i));
+			}
+		}
+		return samples;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			selector.close();
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	private void drainStaleReplies() throws IOException
+	{
+		receiveBuffer.clear();
+		while (channel.receive(receiveBuffer) != null)
+		{
+			receiveBuffer.clear();
+		}
+	}
+
+	private InetSocketAddress resolve(String host)
+	{
+		long now = System.currentTimeMillis();
+		ResolvedAddress cached = addressCache.get(host);
+		if (cached != null && now - cached.resolvedAtMillis < DNS_CACHE_MILLIS)
+		{
+			return cached.address;
+		}
+
+		try
+		{
+			InetSocketAddress address = new InetSocketAddress(InetAddress.getByName(host), port);
+			addressCache.put(host, new ResolvedAddress(address, now));
+			return address;
+		}
+		catch (UnknownHostException e)
+		{
+			log.debug("Could not resolve NTP host {}: {}", host, e.getMessage());
+			return null;
+		}
+	}
+
+	// Replies are matched by source address; the originate timestamp check in parseResponse guards the rest
+	private static int indexOf(InetSocketAddress[] targets, byte[][] transmitted, SocketAddress from)
+	{
+		for (int i = 0; i < targets.length; i++)
+		{
+			if (transmitted[i] != null && targets[i] != null && targets[i].equals(from))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static final class ResolvedAddress
+	{
+		private final InetSocketAddress address;
+		private final long resolvedAtMillis;
+
+		private ResolvedAddress(InetSocketAddress address, long resolvedAtMillis)
+		{
+			this.address = address;
+			this.resolvedAtMillis = resolvedAtMillis;
+		}
+	}
+}
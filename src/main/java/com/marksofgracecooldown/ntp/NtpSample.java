@@ -0,0 +1,41 @@
+package com.marksofgracecooldown.ntp;
+
+import lombok.Getter;
+
+/**
+ * One NTP request/response exchange reduced to its clock offset and round-trip delay.
+ * <p>
+ * Uses the four on-wire timestamps (RFC 5905 section 8): T1 client transmit, T2 server
+ * receive, T3 server transmit, T4 client receive. Server processing time (T3 - T2) is
+ * excluded from the delay, and the offset assumes a symmetric path.
+ */
+@Getter
+final class NtpSample
+{
+	private final String host;
+	private final long offsetMillis;
+	private final long delayMillis;
+
+	NtpSample(String host, long offsetMillis, long delayMillis)
+	{
+		this.host = host;
+		this.offsetMillis = offsetMillis;
+		this.delayMillis = delayMillis;
+	}
+
+	/**
+	 * All timestamps are milliseconds on the NTP timescale (seconds since 1900).
+	 */
+	static NtpSample fromTimestamps(String host, long t1, long t2, long t3, long t4)
+	{
+		long offset = (NtpClient.wrapDifference(t2 - t1) + NtpClient.wrapDifference(t3 - t4)) / 2;
+		long delay = (t4 - t1) - (t3 - t2);
+		return new NtpSample(host, offset, Math.max(0, delay));
+	}
+
+	@Override
+	public String toString()
+	{
+		return host + "[offset=" + offsetMillis + "ms, delay=" + delayMillis + "ms]";
+	}
+}
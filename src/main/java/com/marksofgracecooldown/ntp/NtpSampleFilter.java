@@ -0,0 +1,100 @@
+package com.marksofgracecooldown.ntp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Combines a burst of {@link NtpSample}s into a single clock offset.
+ * <p>
+ * First the sample with the lowest round-trip delay is kept per server, since queueing delay
+ * is what makes the symmetric-path assumption wrong. The per-server survivors are then compared
+ * against their median offset and any server that disagrees by more than its own delay plus a
+ * small tolerance is discarded as a falseticker. The remaining offsets are averaged, weighted
+ * towards the lower-delay servers.
+ */
+final class NtpSampleFilter
+{
+	// Tolerance on top of a server's delay before it is considered an outlier
+	static final long OUTLIER_TOLERANCE_MILLIS = 25;
+
+	private NtpSampleFilter()
+	{
+	}
+
+	/**
+	 * Returns the best minimum-delay sample for every host, in first-seen host order.
+	 */
+	static List<NtpSample> bestPerHost(Collection<NtpSample> samples)
+	{
+		Map<String, NtpSample> best = new LinkedHashMap<>();
+		for (NtpSample sample : samples)
+		{
+			best.merge(sample.getHost(), sample, (a, b) -> b.getDelayMillis() < a.getDelayMillis() ? b : a);
+		}
+		return new ArrayList<>(best.values());
+	}
+
+	/**
+	 * Removes samples whose offset is further from the median than their delay plus the tolerance.
+	 * Returns the input unchanged when fewer than three servers answered, as there is no majority.
+	 */
+	static List<NtpSample> rejectOutliers(List<NtpSample> samples)
+	{
+		if (samples.size() < 3)
+		{
+			return samples;
+		}
+
+		long median = medianOffset(samples);
+		List<NtpSample> survivors = new ArrayList<>(samples.size());
+		for (NtpSample sample : samples)
+		{
+			if (Math.abs(sample.getOffsetMillis() - median) <= sample.getDelayMillis() + OUTLIER_TOLERANCE_MILLIS)
+			{
+				survivors.add(sample);
+			}
+		}
+		return survivors.isEmpty() ? samples : survivors;
+	}
+
+	/**
+	 * Full pipeline: per-host minimum delay, outlier rejection, then a delay-weighted mean.
+	 *
+	 * @return the combined offset, or null if there were no samples
+	 */
+	static Long combine(Collection<NtpSample> samples)
+	{
+		if (samples.isEmpty())
+		{
+			return null;
+		}
+
+		List<NtpSample> survivors = rejectOutliers(bestPerHost(samples));
+
+		double weightedSum = 0;
+		double totalWeight = 0;
+		for (NtpSample sample : survivors)
+		{
+			double weight = 1.0 / (sample.getDelayMillis() + 1);
+			weightedSum += sample.getOffsetMillis() * weight;
+			totalWeight += weight;
+		}
+		return Math.round(weightedSum / totalWeight);
+	}
+
+	private static long medianOffset(List<NtpSample> samples)
+	{
+		List<NtpSample> sorted = new ArrayList<>(samples);
+		sorted.sort(Comparator.comparingLong(NtpSample::getOffsetMillis));
+		int mid = sorted.size() / 2;
+		if (sorted.size() % 2 == 1)
+		{
+			return sorted.get(mid).getOffsetMillis();
+		}
+		return (sorted.get(mid - 1).getOffsetMillis() + sorted.get(mid).getOffsetMillis()) / 2;
+	}
+}
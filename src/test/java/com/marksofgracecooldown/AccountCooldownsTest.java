@@ -0,0 +1,71 @@
+package com.marksofgracecooldown;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class AccountCooldownsTest
+{
+	private static final long MARK = 1_600_000_000_000L;
+
+	private static CooldownStateStore.CooldownState state(long markTime)
+	{
+		return new CooldownStateStore.CooldownState(Courses.CANIFIS, markTime, false);
+	}
+
+	@Test
+	public void testPutAndGet()
+	{
+		AccountCooldowns cooldowns = new AccountCooldowns();
+		CooldownStateStore.CooldownState first = state(MARK);
+		cooldowns.put(1L, first);
+		cooldowns.put(2L, state(MARK + 1));
+
+		assertSame(first, cooldowns.get(1L));
+		assertNull(cooldowns.get(3L));
+
+		cooldowns.remove(1L);
+		assertNull(cooldowns.get(1L));
+		assertEquals(1, cooldowns.size());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyPlayed()
+	{
+		AccountCooldowns cooldowns = new AccountCooldowns();
+		for (long account = 0; account < AccountCooldowns.MAX_ACCOUNTS; account++)
+		{
+			cooldowns.put(account, state(MARK + account));
+		}
+		// Logging into account 0 again makes account 1 the eldest
+		assertNotNull(cooldowns.get(0L));
+		cooldowns.put(100L, state(MARK));
+
+		assertEquals(AccountCooldowns.MAX_ACCOUNTS, cooldowns.size());
+		assertNotNull(cooldowns.get(0L));
+		assertNull(cooldowns.get(1L));
+		assertNotNull(cooldowns.get(100L));
+	}
+
+	@Test
+	public void testSnapshotKeepsOrderAndIsACopy()
+	{
+		AccountCooldowns cooldowns = new AccountCooldowns();
+		Map<Long, CooldownStateStore.CooldownState> loaded = new LinkedHashMap<>();
+		loaded.put(5L, state(MARK));
+		loaded.put(3L, state(MARK + 1));
+		cooldowns.replaceAll(loaded);
+
+		Map<Long, CooldownStateStore.CooldownState> snapshot = cooldowns.snapshot();
+		assertEquals(Arrays.asList(5L, 3L), new ArrayList<>(snapshot.keySet()));
+
+		snapshot.clear();
+		assertEquals(2, cooldowns.size());
+	}
+}
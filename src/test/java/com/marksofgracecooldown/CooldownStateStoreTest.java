@@ -0,0 +1,104 @@
+package com.marksofgracecooldown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CooldownStateStoreTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSaveAndLoad() throws Exception
+	{
+		File file = new File(folder.getRoot(), "state/cooldown-state.bin");
+		CooldownStateStore store = new CooldownStateStore(file);
+		assertTrue(store.load().isEmpty());
+
+		Map<Long, CooldownStateStore.CooldownState> states = new LinkedHashMap<>();
+		states.put(42L, new CooldownStateStore.CooldownState(Courses.ARDOUGNE, 1_600_000_000_000L, true));
+		store.save(states);
+		states.put(-7L, new CooldownStateStore.CooldownState(Courses.CANIFIS, 1_600_000_060_000L, false));
+		store.save(states);
+
+		Map<Long, CooldownStateStore.CooldownState> loaded = store.load();
+		assertEquals(Arrays.asList(42L, -7L), new ArrayList<>(loaded.keySet()));
+		assertEquals(Courses.ARDOUGNE, loaded.get(42L).getCourse());
+		assertTrue(loaded.get(42L).isReducedCooldown());
+		CooldownStateStore.CooldownState state = loaded.get(-7L);
+		assertEquals(Courses.CANIFIS, state.getCourse());
+		assertEquals(1_600_000_060_000L, state.getMarkTimeMillis());
+		assertFalse(state.isReducedCooldown());
+		assertFalse("Temporary file must be renamed away", new File(file.getParentFile(), "cooldown-state.bin.tmp").exists());
+	}
+
+	@Test
+	public void testSavesFromTwoClientsAreMerged() throws Exception
+	{
+		File file = new File(folder.getRoot(), "cooldown-state.bin");
+		CooldownStateStore first = new CooldownStateStore(file);
+		CooldownStateStore second = new CooldownStateStore(file);
+		long mark = 1_600_000_000_000L;
+
+		first.save(Collections.singletonMap(1L, new CooldownStateStore.CooldownState(Courses.SEERS, mark, false)));
+		second.save(Collections.singletonMap(2L, new CooldownStateStore.CooldownState(Courses.CANIFIS, mark, false)));
+		// The first client still holds an older cooldown for account 2, which must not win
+		Map<Long, CooldownStateStore.CooldownState> stale = new LinkedHashMap<>();
+		stale.put(1L, new CooldownStateStore.CooldownState(Courses.SEERS, mark + 60_000, false));
+		stale.put(2L, new CooldownStateStore.CooldownState(Courses.ARDOUGNE, mark - 60_000, true));
+		first.save(stale);
+
+		Map<Long, CooldownStateStore.CooldownState> loaded = new CooldownStateStore(file).load();
+		assertEquals(2, loaded.size());
+		assertEquals(mark + 60_000, loaded.get(1L).getMarkTimeMillis());
+		assertEquals(Courses.CANIFIS, loaded.get(2L).getCourse());
+		assertEquals(mark, loaded.get(2L).getMarkTimeMillis());
+	}
+
+	@Test
+	public void testCorruptFileIgnored() throws Exception
+	{
+		File file = folder.newFile("cooldown-state.bin");
+		Files.write(file.toPath(), new byte[]{1, 2, 3});
+
+		assertTrue(new CooldownStateStore(file).load().isEmpty());
+	}
+
+	@Test
+	public void testTruncatedFileIgnored() throws Exception
+	{
+		File file = new File(folder.getRoot(), "cooldown-state.bin");
+		CooldownStateStore store = new CooldownStateStore(file);
+		store.save(Collections.singletonMap(1L, new CooldownStateStore.CooldownState(Courses.SEERS, 1_600_000_000_000L, false)));
+
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 4));
+
+		assertTrue(store.load().isEmpty());
+	}
+
+	@Test
+	public void testWithinCooldownWindow()
+	{
+		long mark = 1_600_000_000_000L;
+		CooldownStateStore.CooldownState state = new CooldownStateStore.CooldownState(Courses.SEERS, mark, false);
+
+		assertTrue(state.isWithinCooldown(mark, 180_000));
+		assertTrue(state.isWithinCooldown(mark + 179_999, 180_000));
+		assertFalse(state.isWithinCooldown(mark + 180_000, 180_000));
+		assertFalse("Mark time in the future", state.isWithinCooldown(mark - 1, 180_000));
+		// A timer buffer extends the window
+		assertTrue(state.isWithinCooldown(mark + 182_000, 185_000));
+	}
+}
@@ -0,0 +1,139 @@
+package com.marksofgracecooldown;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.runelite.api.events.GameObjectSpawned;
+import net.runelite.api.events.ItemSpawned;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayManager;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CourseActivationTest
+{
+	// Canifis among the regions of a loaded scene
+	private static final int[] CANIFIS_SCENE = {13877, 13878, 13879};
+	// Lumbridge
+	private static final int[] LUMBRIDGE_SCENE = {12850, 12851};
+
+	private final List<Object> forwarded = new ArrayList<>();
+	private final MarksOfGraceCDPlugin plugin = new MarksOfGraceCDPlugin()
+	{
+		@Override
+		public void onItemSpawned(ItemSpawned event)
+		{
+			forwarded.add(event);
+		}
+
+		@Override
+		public void onGameObjectSpawned(GameObjectSpawned event)
+		{
+			forwarded.add(event);
+		}
+	};
+
+	private EventBus eventBus;
+	private OverlayManager overlayManager;
+	private Overlay clickBoxOverlay;
+	private CourseActivation activation;
+
+	@Before
+	public void setUp()
+	{
+		eventBus = new EventBus();
+		overlayManager = mock(OverlayManager.class);
+		clickBoxOverlay = mock(Overlay.class);
+		activation = new CourseActivation(plugin, eventBus, overlayManager, clickBoxOverlay);
+	}
+
+	@Test
+	public void testContainsCourseRegion()
+	{
+		assertTrue(CourseActivation.containsCourseRegion(CANIFIS_SCENE));
+		assertFalse(CourseActivation.containsCourseRegion(LUMBRIDGE_SCENE));
+		assertFalse(CourseActivation.containsCourseRegion(new int[0]));
+		assertFalse(CourseActivation.containsCourseRegion(null));
+	}
+
+	@Test
+	public void testInactiveAwayFromCourses()
+	{
+		activation.update(LUMBRIDGE_SCENE);
+
+		assertFalse(activation.isActive());
+		eventBus.post(new ItemSpawned(null, null));
+		assertTrue(forwarded.isEmpty());
+		verify(overlayManager, never()).add(clickBoxOverlay);
+	}
+
+	@Test
+	public void testActivatesOnCourseAndForwardsEvents()
+	{
+		activation.update(CANIFIS_SCENE);
+
+		assertTrue(activation.isActive());
+		verify(overlayManager).add(clickBoxOverlay);
+
+		ItemSpawned item = new ItemSpawned(null, null);
+		GameObjectSpawned object = new GameObjectSpawned();
+		eventBus.post(item);
+		eventBus.post(object);
+		assertEquals(2, forwarded.size());
+		assertSame(item, forwarded.get(0));
+		assertSame(object, forwarded.get(1));
+	}
+
+	@Test
+	public void testRepeatedActivationRegistersOnce()
+	{
+		activation.update(CANIFIS_SCENE);
+		activation.update(CANIFIS_SCENE);
+		activation.setActive(true);
+
+		verify(overlayManager, times(1)).add(clickBoxOverlay);
+		eventBus.post(new ItemSpawned(null, null));
+		assertEquals("Each event must reach the plugin once", 1, forwarded.size());
+	}
+
+	@Test
+	public void testDeactivatesWhenLeavingCourse()
+	{
+		activation.update(CANIFIS_SCENE);
+		activation.update(LUMBRIDGE_SCENE);
+
+		assertFalse(activation.isActive());
+		verify(overlayManager).remove(clickBoxOverlay);
+		eventBus.post(new ItemSpawned(null, null));
+		assertTrue(forwarded.isEmpty());
+
+		// Coming back registers again
+		activation.update(CANIFIS_SCENE);
+		verify(overlayManager, times(2)).add(clickBoxOverlay);
+		eventBus.post(new ItemSpawned(null, null));
+		assertEquals(1, forwarded.size());
+	}
+
+	@Test
+	public void testShutdownDeactivatesOnce()
+	{
+		activation.update(CANIFIS_SCENE);
+
+		// As in MarksOfGraceCDPlugin.shutDown
+		activation.setActive(false);
+		activation.setActive(false);
+
+		assertFalse(activation.isActive());
+		verify(overlayManager, times(1)).remove(clickBoxOverlay);
+		eventBus.post(new GameObjectSpawned());
+		assertTrue(forwarded.isEmpty());
+	}
+}
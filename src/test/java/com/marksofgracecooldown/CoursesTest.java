@@ -1,5 +1,6 @@
 package com.marksofgracecooldown;
 
+import net.runelite.api.coords.WorldPoint;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -85,4 +86,29 @@ public class CoursesTest {
                     course, Courses.getCourse(course.getRegionId()));
         }
     }
+
+    @Test
+    public void testFinishTileLookup() {
+        for (Courses course : Courses.values()) {
+            for (WorldPoint tile : course.getCourseEndWorldPoints()) {
+                assertEquals(course.name() + " finish tile " + tile, course,
+                        Courses.getCourseByFinishTile(Courses.packTile(tile.getX(), tile.getY(), tile.getPlane())));
+            }
+        }
+
+        // All four Falador finish tiles, but not the ones next to them
+        for (int y = 3332; y <= 3335; y++) {
+            assertEquals(Courses.FALADOR, Courses.getCourseByFinishTile(Courses.packTile(3029, y, 0)));
+        }
+        assertNull(Courses.getCourseByFinishTile(Courses.packTile(3029, 3336, 0)));
+        assertNull(Courses.getCourseByFinishTile(Courses.packTile(3028, 3332, 0)));
+        // Same x/y on another plane
+        assertNull(Courses.getCourseByFinishTile(Courses.packTile(3510, 3485, 1)));
+    }
+
+    @Test
+    public void testPackTile() {
+        assertEquals((1 << 28) | (3510 << 14) | 3485, Courses.packTile(3510, 3485, 1));
+        assertNotEquals(Courses.packTile(3510, 3485, 0), Courses.packTile(3485, 3510, 0));
+    }
 }
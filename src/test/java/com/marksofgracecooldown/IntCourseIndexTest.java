@@ -0,0 +1,76 @@
+package com.marksofgracecooldown;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class IntCourseIndexTest
+{
+	@Test
+	public void testPutAndGet()
+	{
+		IntCourseIndex index = new IntCourseIndex(3);
+		index.put(14897, Courses.CANIFIS);
+		index.put(23138, Courses.GNOME);
+		index.put(23139, Courses.GNOME);
+
+		assertEquals(3, index.size());
+		assertEquals(Courses.CANIFIS, index.get(14897));
+		assertEquals(Courses.GNOME, index.get(23138));
+		assertEquals(Courses.GNOME, index.get(23139));
+		assertNull(index.get(0));
+		assertNull(index.get(-1));
+		assertFalse(index.containsKey(14898));
+	}
+
+	@Test
+	public void testReplaceExistingKey()
+	{
+		IntCourseIndex index = new IntCourseIndex(1);
+		index.put(42, Courses.DRAYNOR);
+		index.put(42, Courses.VARROCK);
+
+		assertEquals(1, index.size());
+		assertEquals(Courses.VARROCK, index.get(42));
+	}
+
+	@Test
+	public void testCollidingKeys()
+	{
+		// Enough sequential keys that some are guaranteed to share a probe chain
+		IntCourseIndex index = new IntCourseIndex(64);
+		for (int i = 0; i < 64; i++)
+		{
+			index.put(i * 1024, Courses.values()[i % Courses.values().length]);
+		}
+		for (int i = 0; i < 64; i++)
+		{
+			assertEquals(Courses.values()[i % Courses.values().length], index.get(i * 1024));
+		}
+		assertNull(index.get(1));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testOverfillThrows()
+	{
+		IntCourseIndex index = new IntCourseIndex(1);
+		for (int i = 0; i < 16; i++)
+		{
+			index.put(i, Courses.CANIFIS);
+		}
+	}
+
+	@Test
+	public void testAllLastObstaclesIndexed()
+	{
+		for (Courses course : Courses.values())
+		{
+			for (int id : course.getLastObstacleIds())
+			{
+				assertEquals(course, Courses.getCourseByLastObstacle(id));
+			}
+		}
+		assertNull(Courses.getCourseByLastObstacle(1));
+	}
+}
@@ -0,0 +1,179 @@
+package com.marksofgracecooldown;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LapHistoryLogTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRecordsSurviveReopen() throws Exception
+	{
+		File file = new File(folder.getRoot(), "history/lap-history.bin");
+		try (LapHistoryLog log = LapHistoryLog.open(file))
+		{
+			log.appendLap(Courses.CANIFIS, 1_000L, 0);
+			log.appendLap(Courses.CANIFIS, 45_000L, 44_000);
+			log.appendMark(Courses.CANIFIS, 45_000L);
+		}
+
+		try (LapHistoryLog log = LapHistoryLog.open(file))
+		{
+			assertEquals(3, log.getCount());
+			List<LapHistoryLog.Entry> entries = log.readAll();
+			assertEquals(3, entries.size());
+
+			LapHistoryLog.Entry lap = entries.get(1);
+			assertTrue(lap.isLap());
+			assertEquals(Courses.CANIFIS, lap.getCourse());
+			assertEquals(45_000L, lap.getTimestampMillis());
+			assertEquals(44_000, lap.getDurationMillis());
+
+			LapHistoryLog.Entry mark = entries.get(2);
+			assertFalse(mark.isLap());
+			assertEquals(0, mark.getDurationMillis());
+		}
+	}
+
+	@Test
+	public void testClientsSharingTheFileDoNotOverwriteEachOther() throws Exception
+	{
+		File file = folder.newFile("shared.bin");
+		try (LapHistoryLog first = LapHistoryLog.open(file);
+			LapHistoryLog second = LapHistoryLog.open(file))
+		{
+			first.appendLap(Courses.CANIFIS, 1_000L, 44_000);
+			second.appendLap(Courses.SEERS, 2_000L, 40_000);
+			first.appendMark(Courses.CANIFIS, 3_000L);
+			second.appendLap(Courses.SEERS, 4_000L, 41_000);
+
+			assertEquals(4, first.getCount());
+			assertEquals(4, second.getCount());
+			List<LapHistoryLog.Entry> entries = second.readAll();
+			assertEquals(4, entries.size());
+			assertEquals(Courses.CANIFIS, entries.get(0).getCourse());
+			assertEquals(Courses.SEERS, entries.get(1).getCourse());
+			assertFalse(entries.get(2).isLap());
+			assertEquals(4_000L, entries.get(3).getTimestampMillis());
+		}
+	}
+
+	@Test
+	public void testAppendQueuesWhileTheFileIsLocked() throws Exception
+	{
+		File file = folder.newFile("locked.bin");
+		try (LapHistoryLog log = LapHistoryLog.open(file);
+			FileChannel other = FileChannel.open(file.toPath(), StandardOpenOption.WRITE))
+		{
+			try (FileLock ignored = other.lock(0, 16, false))
+			{
+				// Returns without waiting for the lock
+				log.appendLap(Courses.CANIFIS, 1_000L, 44_000);
+				assertEquals(0, log.getCount());
+			}
+
+			log.appendMark(Courses.CANIFIS, 2_000L);
+			assertEquals(2, log.getCount());
+			List<LapHistoryLog.Entry> entries = log.readAll();
+			assertEquals(2, entries.size());
+			assertTrue(entries.get(0).isLap());
+			assertFalse(entries.get(1).isLap());
+		}
+	}
+
+	@Test
+	public void testFlushWritesQueuedRecords() throws Exception
+	{
+		File file = folder.newFile("queued.bin");
+		try (LapHistoryLog log = LapHistoryLog.open(file);
+			FileChannel other = FileChannel.open(file.toPath(), StandardOpenOption.WRITE))
+		{
+			try (FileLock ignored = other.lock(0, 16, false))
+			{
+				log.appendLap(Courses.SEERS, 1_000L, 40_000);
+			}
+
+			log.flush();
+			assertEquals(1, log.getCount());
+			assertEquals(40_000, log.readAll().get(0).getDurationMillis());
+		}
+	}
+
+	@Test
+	public void testRecordsThatNeverReachedTheDiskAreSkipped() throws Exception
+	{
+		File file = folder.newFile("torn.bin");
+		try (LapHistoryLog log = LapHistoryLog.open(file))
+		{
+			log.appendLap(Courses.CANIFIS, 1_000L, 44_000);
+			log.appendLap(Courses.CANIFIS, 45_000L, 44_000);
+		}
+
+		// The header was written back but the first record's page was not
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+		{
+			raf.seek(16);
+			raf.write(new byte[LapHistoryLog.RECORD_SIZE]);
+		}
+
+		try (LapHistoryLog log = LapHistoryLog.open(file))
+		{
+			assertEquals(2, log.getCount());
+			List<LapHistoryLog.Entry> entries = log.readAll();
+			assertEquals(1, entries.size());
+			assertEquals(45_000L, entries.get(0).getTimestampMillis());
+		}
+	}
+
+	@Test
+	public void testFileSizeIsBounded() throws Exception
+	{
+		File file = folder.newFile("ring.bin");
+		try (LapHistoryLog log = LapHistoryLog.open(file))
+		{
+			int total = LapHistoryLog.CAPACITY + 10;
+			for (int i = 0; i < total; i++)
+			{
+				log.appendLap(Courses.SEERS, i, 1);
+			}
+
+			assertEquals(total, log.getCount());
+			List<LapHistoryLog.Entry> entries = log.readAll();
+			assertEquals(LapHistoryLog.CAPACITY, entries.size());
+			// Oldest retained record comes first
+			assertEquals(10L, entries.get(0).getTimestampMillis());
+			assertEquals(total - 1L, entries.get(entries.size() - 1).getTimestampMillis());
+		}
+
+		assertEquals(16L + (long) LapHistoryLog.CAPACITY * LapHistoryLog.RECORD_SIZE, file.length());
+	}
+
+	@Test
+	public void testUnknownFileStartsFresh() throws Exception
+	{
+		File file = folder.newFile("garbage.bin");
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+		{
+			raf.writeLong(0x1234567890abcdefL);
+			raf.writeLong(42);
+		}
+
+		try (LapHistoryLog log = LapHistoryLog.open(file))
+		{
+			assertEquals(0, log.getCount());
+			assertTrue(log.readAll().isEmpty());
+		}
+	}
+}
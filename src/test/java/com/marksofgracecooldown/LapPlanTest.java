@@ -0,0 +1,78 @@
+package com.marksofgracecooldown;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class LapPlanTest
+{
+	private static final long MARK = 1_600_000_000_000L;
+	private static final long EXPIRY = MARK + 180_000;
+
+	@Test
+	public void testLapsThatFitAndIdleBeforeExpiry()
+	{
+		// 180s left at the mark lap, 50s laps: 3 laps then 30s at the last obstacle
+		LapPlan plan = LapPlan.compute(Courses.CANIFIS, MARK, MARK, EXPIRY, 50);
+
+		assertEquals(3, plan.getLapsRemaining());
+		assertEquals(30_000, plan.getIdleMillis());
+		assertEquals(EXPIRY, plan.getProjectedMarkMillis());
+	}
+
+	@Test
+	public void testReplanAfterLap()
+	{
+		// 20s left after a lap: the next lap finishes after expiry without waiting
+		long lastLap = EXPIRY - 20_000;
+		LapPlan plan = LapPlan.compute(Courses.CANIFIS, MARK, lastLap, EXPIRY, 50);
+
+		assertEquals(0, plan.getLapsRemaining());
+		assertEquals(0, plan.getIdleMillis());
+		assertEquals(lastLap + 50_000, plan.getProjectedMarkMillis());
+	}
+
+	@Test
+	public void testExactFitNeedsNoIdle()
+	{
+		LapPlan plan = LapPlan.compute(Courses.CANIFIS, MARK, MARK, EXPIRY, 60);
+
+		assertEquals(3, plan.getLapsRemaining());
+		assertEquals(0, plan.getIdleMillis());
+		assertEquals(EXPIRY, plan.getProjectedMarkMillis());
+	}
+
+	@Test
+	public void testLapAfterExpiry()
+	{
+		long lastLap = EXPIRY + 5_000;
+		LapPlan plan = LapPlan.compute(Courses.CANIFIS, MARK, lastLap, EXPIRY, 50);
+
+		assertEquals(0, plan.getLapsRemaining());
+		assertEquals(lastLap, plan.getProjectedMarkMillis());
+	}
+
+	@Test
+	public void testZeroLapTime()
+	{
+		LapPlan plan = LapPlan.compute(Courses.CANIFIS, MARK, MARK, EXPIRY, 0);
+
+		assertEquals(0, plan.getLapsRemaining());
+		assertEquals(0, plan.getIdleMillis());
+		assertEquals(MARK, plan.getProjectedMarkMillis());
+	}
+
+	@Test
+	public void testIsFor()
+	{
+		LapPlan plan = LapPlan.compute(Courses.CANIFIS, MARK, MARK, EXPIRY, 50);
+
+		assertTrue(plan.isFor(Courses.CANIFIS, MARK, EXPIRY, 50));
+		assertFalse(plan.isFor(Courses.SEERS, MARK, EXPIRY, 50));
+		assertFalse(plan.isFor(Courses.CANIFIS, MARK + 1, EXPIRY, 50));
+		assertFalse(plan.isFor(Courses.CANIFIS, MARK, EXPIRY, 45));
+		// Ping or NTP moved the expiry
+		assertFalse(plan.isFor(Courses.CANIFIS, MARK, EXPIRY - 50, 50));
+	}
+}
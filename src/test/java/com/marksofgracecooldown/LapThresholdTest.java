@@ -192,4 +192,62 @@ public class LapThresholdTest {
         int t = callLapThreshold(Courses.CANIFIS);
         assertEquals(50, t);
     }
+
+    @Test
+    public void testThresholdTableUsesDetectedDiary() {
+        MarksOfGraceCDSettings settings = MarksOfGraceCDSettings.from(new MarksOfGraceCDConfig() {
+            @Override public boolean useSeersTeleport() { return true; }
+            @Override public int lapTimeBuffer() { return 2; }
+        });
+
+        // Detected diary enables the Seers teleport time without the assume override
+        LapThresholdTable withDiary = LapThresholdTable.build(settings, true);
+        assertEquals(38, withDiary.getBaseOptimalSeconds(Courses.SEERS));
+        assertEquals(40, withDiary.getThresholdSeconds(Courses.SEERS));
+
+        LapThresholdTable withoutDiary = LapThresholdTable.build(settings, false);
+        assertEquals(44, withoutDiary.getBaseOptimalSeconds(Courses.SEERS));
+        assertEquals(46, withoutDiary.getThresholdSeconds(Courses.SEERS));
+
+        // Other courses are unaffected by the toggle
+        assertEquals(46, withDiary.getThresholdSeconds(Courses.CANIFIS));
+    }
+
+    @Test
+    public void testObservedLapTime_usesPercentileOnceEnoughLaps() {
+        MarksOfGraceCDSettings settings = MarksOfGraceCDSettings.from(new MarksOfGraceCDConfig() {
+            @Override public boolean useObservedLapTime() { return true; }
+            @Override public int observedLapPercentile() { return 90; }
+            @Override public int lapTimeBuffer() { return 2; }
+        });
+        LapTimeStats stats = new LapTimeStats();
+        for (int i = 0; i < LapThresholdTable.MIN_OBSERVED_LAPS - 1; i++) {
+            stats.record(Courses.CANIFIS, 50_000);
+        }
+
+        // Not enough laps yet: optimal 44 + buffer 2
+        assertEquals(46, LapThresholdTable.build(settings, false, stats).getThresholdSeconds(Courses.CANIFIS));
+
+        stats.record(Courses.CANIFIS, 52_100);
+        LapThresholdTable table = LapThresholdTable.build(settings, false, stats);
+        // p90 of nine 50.0s laps and one 52.1s lap, rounded up to whole seconds, no buffer
+        assertEquals(50, table.getThresholdSeconds(Courses.CANIFIS));
+        // Courses without laps keep the optimal time
+        assertEquals(46, table.getThresholdSeconds(Courses.SEERS));
+    }
+
+    @Test
+    public void testObservedLapTime_customLapTimeTakesPriority() {
+        MarksOfGraceCDSettings settings = MarksOfGraceCDSettings.from(new MarksOfGraceCDConfig() {
+            @Override public boolean useObservedLapTime() { return true; }
+            @Override public boolean useCustomLapTime() { return true; }
+            @Override public int customLapTimeSeconds() { return 70; }
+        });
+        LapTimeStats stats = new LapTimeStats();
+        for (int i = 0; i < LapThresholdTable.MIN_OBSERVED_LAPS; i++) {
+            stats.record(Courses.CANIFIS, 50_000);
+        }
+
+        assertEquals(70, LapThresholdTable.build(settings, false, stats).getThresholdSeconds(Courses.CANIFIS));
+    }
 }
@@ -0,0 +1,66 @@
+package com.marksofgracecooldown;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class LapTimeStatsTest
+{
+	@Test
+	public void testPercentilesWithinOneBin()
+	{
+		LapTimeStats stats = new LapTimeStats();
+		// 100 laps from 40.1s to 50.0s in 100ms steps
+		for (int i = 1; i <= 100; i++)
+		{
+			stats.record(Courses.CANIFIS, 40_000 + i * 100);
+		}
+
+		assertEquals(100, stats.getCount(Courses.CANIFIS));
+		assertEquals(45_000, stats.getP50Millis(Courses.CANIFIS));
+		assertEquals(49_000, stats.getP90Millis(Courses.CANIFIS));
+		assertEquals(50_000, stats.getP99Millis(Courses.CANIFIS));
+	}
+
+	@Test
+	public void testPercentileNeverFasterThanLap()
+	{
+		LapTimeStats stats = new LapTimeStats();
+		stats.record(Courses.SEERS, 41_001);
+
+		assertEquals(41_250, stats.getP50Millis(Courses.SEERS));
+	}
+
+	@Test
+	public void testCoursesAreIndependent()
+	{
+		LapTimeStats stats = new LapTimeStats();
+		stats.record(Courses.CANIFIS, 44_000);
+
+		assertEquals(-1, stats.getP50Millis(Courses.SEERS));
+		assertEquals(0, stats.getCount(Courses.SEERS));
+	}
+
+	@Test
+	public void testUnknownAndBreakLapsIgnored()
+	{
+		LapTimeStats stats = new LapTimeStats();
+		stats.record(Courses.GNOME, 0);
+		stats.record(Courses.GNOME, -5);
+		stats.record(Courses.GNOME, LapTimeStats.MAX_LAP_MILLIS + 1);
+		assertEquals(0, stats.getCount(Courses.GNOME));
+
+		stats.record(Courses.GNOME, LapTimeStats.MAX_LAP_MILLIS);
+		assertEquals(LapTimeStats.MAX_LAP_MILLIS, stats.getP99Millis(Courses.GNOME));
+	}
+
+	@Test
+	public void testClear()
+	{
+		LapTimeStats stats = new LapTimeStats();
+		stats.record(Courses.CANIFIS, 44_000);
+		stats.clear();
+
+		assertEquals(0, stats.getCount(Courses.CANIFIS));
+		assertEquals(-1, stats.getP90Millis(Courses.CANIFIS));
+	}
+}
@@ -1,17 +1,41 @@
 package com.marksofgracecooldown;
 
+import com.marksofgracecooldown.ntp.MonotonicClock;
 import com.marksofgracecooldown.ntp.NtpClient;
+import net.runelite.api.GameObject;
+import net.runelite.api.GameState;
+import net.runelite.api.GroundObject;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.TileItem;
+import net.runelite.api.events.GameObjectDespawned;
+import net.runelite.api.events.GameObjectSpawned;
+import net.runelite.api.events.GroundObjectDespawned;
+import net.runelite.api.events.GroundObjectSpawned;
+import net.runelite.api.events.ItemContainerChanged;
+import net.runelite.api.events.ItemSpawned;
+import net.runelite.api.gameval.InventoryID;
+import net.runelite.api.gameval.ItemID;
 import net.runelite.client.config.Notification;
+import net.runelite.client.events.ConfigChanged;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
 import java.time.Instant;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class MarksOfGraceCDPluginTest {
+    private static final int TILE_OBJECT_EVENTS = 100_000;
+
     private MarksOfGraceCDPlugin plugin;
 
     @Before
@@ -1261,4 +1285,439 @@ public class MarksOfGraceCDPluginTest {
 
         assertFalse("No lap completed yet — mark spawn should be ignored", wouldUpdate);
     }
+
+    // ========== Cooldown Snapshot Tests ==========
+
+    @Test
+    public void testCooldownSnapshot_reusedWhileInputsUnchanged() {
+        plugin.lastCompleteMarkTimeMillis = Instant.parse("2020-09-13T12:34:56Z").toEpochMilli();
+        plugin.setLastWorldPing(-1);
+
+        CooldownSnapshot first = plugin.getCooldownSnapshot();
+        CooldownSnapshot second = plugin.getCooldownSnapshot();
+
+        assertSame("Snapshot should not be recomputed when nothing changed", first, second);
+    }
+
+    @Test
+    public void testCooldownSnapshot_recomputedWhenInputsChange() {
+        long base = Instant.parse("2020-09-13T12:34:56Z").toEpochMilli();
+        plugin.lastCompleteMarkTimeMillis = base;
+        plugin.setLastWorldPing(-1);
+        CooldownSnapshot noPing = plugin.getCooldownSnapshot();
+
+        plugin.setLastWorldPing(100);
+        CooldownSnapshot withPing = plugin.getCooldownSnapshot();
+        assertNotSame(noPing, withPing);
+        assertEquals(noPing.getCooldownTimestamp(false) - 50, withPing.getCooldownTimestamp(false));
+
+        plugin.lastCompleteMarkTimeMillis = base + MarksOfGraceCDPlugin.MILLIS_PER_MINUTE;
+        CooldownSnapshot nextMark = plugin.getCooldownSnapshot();
+        assertNotSame(withPing, nextMark);
+        assertEquals(withPing.getCooldownTimestamp(false) + MarksOfGraceCDPlugin.MILLIS_PER_MINUTE,
+                nextMark.getCooldownTimestamp(false));
+    }
+
+    // ========== Settings Snapshot Tests ==========
+
+    @Test
+    public void testSettings_refreshedOnlyForOwnConfigGroup() {
+        final int[] timerBuffer = {0};
+        plugin.setConfig(new MarksOfGraceCDConfig() {
+            @Override
+            public int timerBufferSeconds() {
+                return timerBuffer[0];
+            }
+
+            @Override
+            public boolean enableNtpSync() {
+                return false;
+            }
+        });
+        assertEquals(0, plugin.getSettings().timerBufferSeconds());
+
+        timerBuffer[0] = 5;
+        ConfigChanged otherGroup = new ConfigChanged();
+        otherGroup.setGroup("someOtherPlugin");
+        plugin.onConfigChanged(otherGroup);
+        assertEquals("Unrelated config groups must not rebuild the settings",
+                0, plugin.getSettings().timerBufferSeconds());
+
+        ConfigChanged ownGroup = new ConfigChanged();
+        ownGroup.setGroup(MarksOfGraceCDConfig.GROUP);
+        plugin.onConfigChanged(ownGroup);
+        assertEquals(5, plugin.getSettings().timerBufferSeconds());
+    }
+
+    @Test
+    public void testSettings_perCourseToggles() {
+        plugin.setConfig(new MarksOfGraceCDConfig() {
+            @Override
+            public boolean enableGnome() {
+                return false;
+            }
+        });
+
+        assertFalse(plugin.isCourseEnabled(Courses.GNOME));
+        assertTrue(plugin.isCourseEnabled(Courses.CANIFIS));
+        assertTrue(plugin.isCourseEnabled(null));
+    }
+
+    // ========== Clock Tests ==========
+
+    @Test
+    public void testCooldown_unaffectedByWallClockStep() {
+        long base = Instant.parse("2020-09-13T12:00:30Z").toEpochMilli();
+        long[] wallMillis = {base};
+        long[] nanos = {0};
+        plugin.setClock(new MonotonicClock(() -> wallMillis[0], () -> nanos[0]));
+        plugin.setConfig(new MarksOfGraceCDConfig() {
+            @Override
+            public SwapLeftClickMode swapLeftClickMode() {
+                return SwapLeftClickMode.WHEN_NOT_EXPIRED;
+            }
+
+            @Override
+            public int timerBufferSeconds() {
+                return 0;
+            }
+
+            @Override
+            public boolean enableNtpSync() {
+                return false;
+            }
+        });
+        plugin.setLastWorldPing(-1);
+        plugin.currentCourse = Courses.CANIFIS;
+        plugin.isOnCooldown = true;
+        plugin.lastCompleteMarkTimeMillis = plugin.currentTimeMillis();
+
+        // The system clock jumps an hour ahead; the cooldown (ending at 12:03:00) must keep running
+        wallMillis[0] += 60 * MarksOfGraceCDPlugin.MILLIS_PER_MINUTE;
+        nanos[0] += 60_000_000_000L;
+        assertEquals(base + 60_000, plugin.currentTimeMillis());
+        assertTrue(plugin.shouldDeprioritizeMenuEntry(14897));
+
+        // Only the monotonic source moves time forward
+        nanos[0] += 120_000_000_000L;
+        assertFalse(plugin.shouldDeprioritizeMenuEntry(14897));
+    }
+
+    @Test
+    public void testClock_reanchoredAfterSuspendOnlyBetweenCooldowns() {
+        long base = Instant.parse("2020-09-13T12:00:30Z").toEpochMilli();
+        long[] wallMillis = {base};
+        long[] nanos = {0};
+        plugin.setClock(new MonotonicClock(() -> wallMillis[0], () -> nanos[0]));
+        plugin.currentCourse = Courses.CANIFIS;
+        plugin.isOnCooldown = true;
+        plugin.lastCompleteMarkTimeMillis = base;
+
+        // Suspended for an hour: the monotonic source did not advance
+        wallMillis[0] += 60 * MarksOfGraceCDPlugin.MILLIS_PER_MINUTE;
+        plugin.reanchorClock();
+        assertEquals("A running cooldown keeps its timescale", base, plugin.currentTimeMillis());
+
+        plugin.isOnCooldown = false;
+        plugin.reanchorClock();
+        assertEquals(wallMillis[0], plugin.currentTimeMillis());
+    }
+
+    // ========== World Ping Tests ==========
+
+    @Test
+    public void testRecordWorldPing_smoothedAndFailuresIgnored() {
+        plugin.recordWorldPing(100);
+        // First sample: SRTT 100, jitter 50 -> compensate for 50ms round trip
+        assertEquals(50, plugin.getLastWorldPing());
+
+        plugin.recordWorldPing(-1);
+        assertEquals("A failed ping must not discard the estimate", 50, plugin.getLastWorldPing());
+        assertEquals(100, plugin.getWorldRtt().getSmoothedRttMillis());
+    }
+
+    @Test
+    public void testNextPingDelay_adaptsToCooldown() {
+        long base = Instant.parse("2020-09-13T12:00:00Z").toEpochMilli();
+        long[] nanos = {0};
+        plugin.setClock(new MonotonicClock(() -> base, () -> nanos[0]));
+
+        assertEquals("Idle: back off", 60, plugin.nextPingDelaySeconds());
+
+        // Cooldown ends at 12:03:00
+        plugin.lastCompleteMarkTimeMillis = base;
+        plugin.isOnCooldown = true;
+        assertEquals(15, plugin.nextPingDelaySeconds());
+
+        nanos[0] = 160_000_000_000L;
+        assertEquals("Close to expiry: sample more often", 3, plugin.nextPingDelaySeconds());
+    }
+
+    @Test
+    public void testObservedLapTime_stableWhenLapsIncludeWaiting() {
+        plugin.setConfig(new MarksOfGraceCDConfig() {
+            @Override
+            public boolean useObservedLapTime() {
+                return true;
+            }
+
+            @Override
+            public boolean enableNtpSync() {
+                return false;
+            }
+        });
+        plugin.currentCourse = Courses.CANIFIS;
+        long now = 1_600_000_000_000L;
+        plugin.courseStartTimeMillis = now;
+        plugin.completeLap(Courses.CANIFIS, now);
+        for (int i = 0; i < LapThresholdTable.MIN_OBSERVED_LAPS; i++) {
+            now += 50_000;
+            plugin.completeLap(Courses.CANIFIS, now);
+        }
+        assertEquals(50, plugin.getLapThresholdSeconds(Courses.CANIFIS));
+
+        // Laps where the plugin said to wait at the last obstacle run long by the time waited
+        for (int i = 0; i < LapThresholdTable.MIN_OBSERVED_LAPS; i++) {
+            long cooldownTimestamp = now + 30_000;
+            plugin.updateWaiting(now + 1_000, 600, cooldownTimestamp);
+            now += 80_000;
+            plugin.completeLap(Courses.CANIFIS, now);
+            assertEquals("Waiting must not feed back into the threshold",
+                    50, plugin.getLapThresholdSeconds(Courses.CANIFIS));
+        }
+
+        // A lap without waiting is timed again
+        now += 49_000;
+        plugin.completeLap(Courses.CANIFIS, now);
+        assertEquals(LapThresholdTable.MIN_OBSERVED_LAPS + 1, plugin.getLapTimeStats().getCount(Courses.CANIFIS));
+    }
+
+    @Test
+    public void testLapPlan_followsExpiryWhenPingChanges() {
+        long mark = Instant.parse("2020-09-13T12:00:30Z").toEpochMilli();
+        plugin.setLastWorldPing(-1);
+        plugin.currentCourse = Courses.CANIFIS;
+        plugin.lastCompleteMarkTimeMillis = mark;
+        plugin.lastCompleteTimeMillis = mark;
+        plugin.isOnCooldown = true;
+        plugin.updateLapPlan();
+        LapPlan before = plugin.getCurrentLapPlan();
+        assertEquals(plugin.getCooldownTimestamp(true), before.getExpiryMillis());
+
+        // The plan is replanned against the moved expiry rather than kept or dropped
+        plugin.setLastWorldPing(200);
+        LapPlan after = plugin.getCurrentLapPlan();
+        assertEquals(plugin.getCooldownTimestamp(true), after.getExpiryMillis());
+        assertEquals(before.getExpiryMillis() - 100, after.getExpiryMillis());
+    }
+
+    // ========== Cooldown Restore Tests ==========
+
+    @Test
+    public void testRestoreCooldownState_resumesActiveCooldown() {
+        long now = Instant.parse("2020-09-13T12:01:30Z").toEpochMilli();
+        plugin.setClock(new MonotonicClock(() -> now, () -> 0L));
+        long mark = Instant.parse("2020-09-13T12:00:30Z").toEpochMilli();
+
+        assertTrue(plugin.restoreCooldownState(new CooldownStateStore.CooldownState(Courses.ARDOUGNE, mark, true)));
+
+        assertTrue(plugin.isOnCooldown);
+        assertEquals(Courses.ARDOUGNE, plugin.currentCourse);
+        assertEquals(mark, plugin.lastCompleteMarkTimeMillis);
+        assertEquals(mark, plugin.lastCompleteTimeMillis);
+        assertTrue(plugin.hasReducedCooldown);
+    }
+
+    @Test
+    public void testRestoreCooldownState_ignoresExpiredOrMissingState() {
+        long now = Instant.parse("2020-09-13T12:05:00Z").toEpochMilli();
+        plugin.setClock(new MonotonicClock(() -> now, () -> 0L));
+        long mark = Instant.parse("2020-09-13T12:00:30Z").toEpochMilli();
+
+        assertFalse(plugin.restoreCooldownState(null));
+        assertFalse(plugin.restoreCooldownState(new CooldownStateStore.CooldownState(Courses.CANIFIS, mark, false)));
+        assertFalse(plugin.isOnCooldown);
+        assertEquals(0, plugin.lastCompleteMarkTimeMillis);
+    }
+
+    @Test
+    public void testRestoreCooldownState_includesTimerBuffer() {
+        plugin.setConfig(new MarksOfGraceCDConfig() {
+            @Override
+            public int timerBufferSeconds() {
+                return 5;
+            }
+
+            @Override
+            public boolean enableNtpSync() {
+                return false;
+            }
+        });
+        // 3 minutes after the mark: past the bare cooldown but inside the buffered one still shown
+        long mark = Instant.parse("2020-09-13T12:00:00Z").toEpochMilli();
+        long now = mark + 3 * MarksOfGraceCDPlugin.MILLIS_PER_MINUTE + 2_000;
+        plugin.setClock(new MonotonicClock(() -> now, () -> 0L));
+        plugin.getAccountCooldowns().put(4L, new CooldownStateStore.CooldownState(Courses.CANIFIS, mark, false));
+
+        plugin.switchAccount(4L);
+
+        assertTrue(plugin.isOnCooldown);
+        assertTrue(plugin.getCooldownTimestamp(true) > now);
+        assertEquals(Courses.CANIFIS, plugin.getAccountCooldowns().get(4L).getCourse());
+    }
+
+    @Test
+    public void testSwitchAccount_restoresEachAccountsCooldown() {
+        long now = Instant.parse("2020-09-13T12:01:30Z").toEpochMilli();
+        plugin.setClock(new MonotonicClock(() -> now, () -> 0L));
+        long mark = Instant.parse("2020-09-13T12:00:30Z").toEpochMilli();
+        plugin.getAccountCooldowns().put(2L, new CooldownStateStore.CooldownState(Courses.SEERS, mark, false));
+
+        plugin.switchAccount(1L);
+        assertFalse(plugin.isOnCooldown);
+
+        plugin.switchAccount(2L);
+        assertTrue(plugin.isOnCooldown);
+        assertEquals(Courses.SEERS, plugin.currentCourse);
+        assertEquals(mark, plugin.lastCompleteMarkTimeMillis);
+
+        // Back to the first account: its (empty) state, not the second account's timer
+        plugin.switchAccount(1L);
+        assertFalse(plugin.isOnCooldown);
+        assertEquals(0, plugin.lastCompleteMarkTimeMillis);
+        assertNull(plugin.currentCourse);
+    }
+
+    @Test
+    public void testSwitchAccount_dropsExpiredCooldown() {
+        long now = Instant.parse("2020-09-13T12:05:00Z").toEpochMilli();
+        plugin.setClock(new MonotonicClock(() -> now, () -> 0L));
+        long mark = Instant.parse("2020-09-13T12:00:30Z").toEpochMilli();
+        plugin.getAccountCooldowns().put(3L, new CooldownStateStore.CooldownState(Courses.CANIFIS, mark, false));
+
+        plugin.switchAccount(3L);
+
+        assertFalse(plugin.isOnCooldown);
+        assertNull(plugin.getAccountCooldowns().get(3L));
+    }
+
+    // ========== Tile Object Event Tests ==========
+
+    @Test
+    public void testTileObjectEvents_allocationFree() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+        Assume.assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        plugin.currentCourse = Courses.CANIFIS;
+
+        // Ordinary scenery: the overwhelming majority of spawns during a region load
+        GameObject gameObject = TestObjects.tileObject(GameObject.class, 1276);
+        GroundObject groundObject = TestObjects.tileObject(GroundObject.class, 23100);
+
+        GameObjectSpawned gameSpawned = new GameObjectSpawned();
+        gameSpawned.setGameObject(gameObject);
+        GameObjectDespawned gameDespawned = new GameObjectDespawned();
+        gameDespawned.setGameObject(gameObject);
+        GroundObjectSpawned groundSpawned = new GroundObjectSpawned();
+        groundSpawned.setGroundObject(groundObject);
+        GroundObjectDespawned groundDespawned = new GroundObjectDespawned();
+        groundDespawned.setGroundObject(groundObject);
+
+        // Warm up so class loading and interpreter setup are not measured
+        for (int i = 0; i < TILE_OBJECT_EVENTS; i++) {
+            plugin.onGameObjectSpawned(gameSpawned);
+            plugin.onGameObjectDespawned(gameDespawned);
+            plugin.onGroundObjectSpawned(groundSpawned);
+            plugin.onGroundObjectDespawned(groundDespawned);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long probeStart = bean.getThreadAllocatedBytes(threadId);
+        long probeOverhead = bean.getThreadAllocatedBytes(threadId) - probeStart;
+
+        long start = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < TILE_OBJECT_EVENTS; i++) {
+            plugin.onGameObjectSpawned(gameSpawned);
+            plugin.onGameObjectDespawned(gameDespawned);
+            plugin.onGroundObjectSpawned(groundSpawned);
+            plugin.onGroundObjectDespawned(groundDespawned);
+        }
+        long allocated = bean.getThreadAllocatedBytes(threadId) - start - probeOverhead;
+
+        assertEquals("onTileObject should not allocate per event, allocated " + allocated + " bytes in total",
+                0, allocated / (TILE_OBJECT_EVENTS * 4L));
+        assertTrue(plugin.getObstacles().isEmpty());
+    }
+
+    @Test
+    public void testObstacles_tracksBothGnomePipes() {
+        int[] pipeIds = Courses.GNOME.getLastObstacleIds();
+        GameObject firstPipe = TestObjects.tileObject(GameObject.class, pipeIds[0]);
+        GameObject secondPipe = TestObjects.tileObject(GameObject.class, pipeIds[1]);
+
+        plugin.onGameObjectSpawned(TestObjects.spawned(firstPipe));
+        plugin.onGameObjectSpawned(TestObjects.spawned(secondPipe));
+        assertEquals(2, plugin.getObstacles().count(Courses.GNOME));
+
+        // Despawns are matched to the obstacle's own course, not the course the player is on
+        plugin.currentCourse = Courses.CANIFIS;
+        plugin.onGameObjectDespawned(TestObjects.despawned(firstPipe));
+        assertEquals(1, plugin.getObstacles().count(Courses.GNOME));
+        assertSame(secondPipe, plugin.getObstacles().get(Courses.GNOME, 0));
+    }
+
+    @Test
+    public void testObstacles_indexedDuringLoading() {
+        GameObject obstacle = TestObjects.tileObject(GameObject.class, Courses.CANIFIS.getLastObstacleIds()[0]);
+        GameObject scenery = TestObjects.tileObject(GameObject.class, 1276);
+        GameObject shortLived = TestObjects.tileObject(GameObject.class, Courses.CANIFIS.getLastObstacleIds()[0]);
+
+        // The load clears the previous scene's obstacles; its spawn events are indexed as they arrive
+        plugin.onGameObjectSpawned(TestObjects.spawned(obstacle));
+        plugin.onGameStateChanged(TestObjects.gameState(GameState.LOADING));
+        assertTrue(plugin.getObstacles().isEmpty());
+
+        plugin.onGameObjectSpawned(TestObjects.spawned(obstacle));
+        plugin.onGameObjectSpawned(TestObjects.spawned(scenery));
+        plugin.onGameObjectSpawned(TestObjects.spawned(shortLived));
+        plugin.onGameObjectDespawned(TestObjects.despawned(shortLived));
+        assertEquals(1, plugin.getObstacles().count(Courses.CANIFIS));
+        assertSame(obstacle, plugin.getObstacles().get(Courses.CANIFIS, 0));
+
+        plugin.onGameObjectDespawned(TestObjects.despawned(obstacle));
+        assertEquals(0, plugin.getObstacles().count(Courses.CANIFIS));
+    }
+
+    // ========== Session Tracking Tests ==========
+
+    @Test
+    public void testMarksCollected_ignoresMarksWithdrawnFromBank() {
+        long base = Instant.parse("2020-09-13T12:00:00Z").toEpochMilli();
+        long[] nanos = {0};
+        plugin.setClock(new MonotonicClock(() -> base, () -> nanos[0]));
+        plugin.currentCourse = Courses.CANIFIS;
+
+        // Baseline inventory, then a mark spawns on the course and is picked up
+        plugin.onItemContainerChanged(inventory(0));
+        TileItem mark = mock(TileItem.class);
+        when(mark.getId()).thenReturn(ItemID.GRACE);
+        when(mark.getQuantity()).thenReturn(1);
+        plugin.onItemSpawned(new ItemSpawned(null, mark));
+        plugin.onItemContainerChanged(inventory(1));
+
+        // Five more withdrawn from the bank on the same course region
+        plugin.onItemContainerChanged(inventory(6));
+
+        nanos[0] = 30 * MarksOfGraceCDPlugin.MILLIS_PER_MINUTE * 1_000_000L;
+        assertEquals(2.0, plugin.getSessionTracker().getMarksPerHour(plugin.currentTimeMillis()), 0.001);
+    }
+
+    private static ItemContainerChanged inventory(int marks) {
+        ItemContainer container = mock(ItemContainer.class);
+        when(container.count(ItemID.GRACE)).thenReturn(marks);
+        return new ItemContainerChanged(InventoryID.INV, container);
+    }
 }
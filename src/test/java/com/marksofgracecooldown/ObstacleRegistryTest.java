@@ -0,0 +1,48 @@
+package com.marksofgracecooldown;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import net.runelite.api.TileObject;
+import org.junit.Test;
+
+public class ObstacleRegistryTest
+{
+	@Test
+	public void testKeepsEveryInstancePerCourse()
+	{
+		ObstacleRegistry registry = new ObstacleRegistry();
+		TileObject center = TestObjects.tileObject(TileObject.class, 1);
+		TileObject side = TestObjects.tileObject(TileObject.class, 2);
+		TileObject mirror = TestObjects.tileObject(TileObject.class, 3);
+		registry.add(Courses.WEREWOLF, center);
+		registry.add(Courses.WEREWOLF, side);
+		registry.add(Courses.WEREWOLF, mirror);
+		registry.add(Courses.WEREWOLF, side);
+
+		assertEquals(3, registry.count(Courses.WEREWOLF));
+		assertEquals(0, registry.count(Courses.GNOME));
+		assertEquals(3, registry.size());
+
+		assertTrue(registry.remove(Courses.WEREWOLF, center));
+		assertFalse(registry.remove(Courses.WEREWOLF, center));
+		assertFalse("Wrong course", registry.remove(Courses.GNOME, side));
+		assertEquals(2, registry.count(Courses.WEREWOLF));
+		// The last instance moved into the freed slot
+		assertSame(mirror, registry.get(Courses.WEREWOLF, 0));
+		assertSame(side, registry.get(Courses.WEREWOLF, 1));
+
+		registry.clear();
+		assertTrue(registry.isEmpty());
+		assertEquals(0, registry.count(Courses.WEREWOLF));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetOutOfRange()
+	{
+		ObstacleRegistry registry = new ObstacleRegistry();
+		registry.add(Courses.CANIFIS, TestObjects.tileObject(TileObject.class, 1));
+		registry.get(Courses.CANIFIS, 1);
+	}
+}
@@ -0,0 +1,95 @@
+package com.marksofgracecooldown;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PluginSchedulerTest
+{
+	private PluginScheduler scheduler;
+
+	@Before
+	public void setUp()
+	{
+		scheduler = PluginScheduler.create("test-scheduler");
+	}
+
+	@After
+	public void tearDown()
+	{
+		scheduler.shutdownNow();
+	}
+
+	@Test
+	public void testRunsTasksAndRecordsMetrics() throws Exception
+	{
+		CountDownLatch ran = new CountDownLatch(3);
+		for (int i = 0; i < 3; i++)
+		{
+			scheduler.execute(ran::countDown);
+		}
+
+		assertTrue(ran.await(5, TimeUnit.SECONDS));
+		scheduler.shutdown();
+		assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(3, scheduler.getTasksRun());
+		assertTrue(scheduler.getAverageStartDelayMillis() >= 0);
+		assertTrue(scheduler.getMaxStartDelayMillis() >= scheduler.getAverageStartDelayMillis());
+	}
+
+	@Test
+	public void testQueueDepthTracksPendingJobs()
+	{
+		ScheduledFuture<?> later = scheduler.schedule(() -> { }, 1, TimeUnit.HOURS);
+		scheduler.scheduleWithFixedDelay(() -> { }, 1, 1, TimeUnit.HOURS);
+		assertEquals(2, scheduler.getQueueDepth());
+
+		// Cancelled jobs leave the queue immediately instead of waiting out their delay
+		later.cancel(false);
+		assertEquals(1, scheduler.getQueueDepth());
+	}
+
+	@Test
+	public void testShutdownDropsScheduledJobsButRunsQueuedOnes() throws Exception
+	{
+		CountDownLatch block = new CountDownLatch(1);
+		CountDownLatch oneOff = new CountDownLatch(1);
+		scheduler.execute(() ->
+		{
+			try
+			{
+				block.await();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		});
+		scheduler.execute(() ->
+		{
+			try
+			{
+				block.await();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		});
+		scheduler.scheduleWithFixedDelay(() -> { }, 1, 1, TimeUnit.HOURS);
+		ScheduledFuture<?> delayed = scheduler.schedule(() -> { }, 1, TimeUnit.HOURS);
+		scheduler.execute(oneOff::countDown);
+
+		scheduler.shutdown();
+		block.countDown();
+
+		assertTrue(oneOff.await(5, TimeUnit.SECONDS));
+		assertTrue("Delayed jobs must not keep the scheduler alive", scheduler.awaitTermination(5, TimeUnit.SECONDS));
+		assertTrue(delayed.isCancelled());
+	}
+}
@@ -0,0 +1,68 @@
+package com.marksofgracecooldown;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class RttEstimatorTest
+{
+	@Test
+	public void testFirstSampleSeedsEstimate()
+	{
+		RttEstimator rtt = new RttEstimator();
+		assertEquals(-1, rtt.getSmoothedRttMillis());
+		assertEquals(-1, rtt.getJitterMillis());
+		assertEquals(-1, rtt.getCompensationRttMillis());
+
+		rtt.addSample(80);
+
+		assertEquals(80, rtt.getSmoothedRttMillis());
+		assertEquals(40, rtt.getJitterMillis());
+		assertEquals(40, rtt.getCompensationRttMillis());
+	}
+
+	@Test
+	public void testSingleSpikeIsDamped()
+	{
+		RttEstimator rtt = new RttEstimator();
+		for (int i = 0; i < 50; i++)
+		{
+			rtt.addSample(40);
+		}
+		assertEquals(40, rtt.getSmoothedRttMillis());
+		assertEquals(0, rtt.getJitterMillis());
+
+		rtt.addSample(440);
+
+		// SRTT moves by 1/8 of the deviation, RTTVAR by 1/4 of it
+		assertEquals(90, rtt.getSmoothedRttMillis());
+		assertEquals(100, rtt.getJitterMillis());
+		assertEquals("Jitter makes the compensation more conservative", 0, rtt.getCompensationRttMillis());
+	}
+
+	@Test
+	public void testFailedSamplesIgnoredAndResetClears()
+	{
+		RttEstimator rtt = new RttEstimator();
+		rtt.addSample(60);
+		rtt.addSample(-1);
+		assertEquals(1, rtt.getSampleCount());
+		assertEquals(60, rtt.getSmoothedRttMillis());
+
+		rtt.reset();
+		assertEquals(0, rtt.getSampleCount());
+		assertEquals(-1, rtt.getSmoothedRttMillis());
+	}
+
+	@Test
+	public void testJitterSettlesOnStablePath()
+	{
+		RttEstimator rtt = new RttEstimator();
+		for (int i = 0; i < 100; i++)
+		{
+			rtt.addSample(i % 2 == 0 ? 45 : 55);
+		}
+		assertTrue(Math.abs(rtt.getSmoothedRttMillis() - 50) <= 1);
+		assertTrue(rtt.getJitterMillis() <= 6);
+	}
+}
@@ -0,0 +1,70 @@
+package com.marksofgracecooldown;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import net.runelite.api.GameObject;
+import net.runelite.api.GroundObject;
+import net.runelite.api.Tile;
+import net.runelite.api.TileObject;
+import net.runelite.client.eventbus.EventBus;
+import org.junit.Test;
+
+public class SceneScannerTest
+{
+	private static final int PLANES = 4;
+	private static final int SIZE = 104;
+
+	@Test
+	public void testScanIsSlicedAndVisitsEveryObject()
+	{
+		Tile[][][] tiles = new Tile[PLANES][SIZE][SIZE];
+		for (int plane = 0; plane < PLANES; plane++)
+		{
+			for (int x = 0; x < SIZE; x++)
+			{
+				for (int y = 0; y < SIZE; y++)
+				{
+					tiles[plane][x][y] = TestObjects.tile(null, null);
+				}
+			}
+		}
+		GameObject obstacle = TestObjects.tileObject(GameObject.class, 1);
+		GroundObject ground = TestObjects.tileObject(GroundObject.class, 2);
+		tiles[0][0][0] = TestObjects.tile(new GameObject[]{null, obstacle}, null);
+		tiles[3][SIZE - 1][SIZE - 1] = TestObjects.tile(null, ground);
+
+		List<TileObject> seen = new ArrayList<>();
+		SceneScanner scanner = new SceneScanner(new EventBus(), seen::add);
+		scanner.start(tiles);
+		assertTrue(scanner.isScanning());
+
+		int slices = 0;
+		while (scanner.scanSlice(SceneScanner.TILES_PER_SLICE))
+		{
+			slices++;
+		}
+		int expectedSlices = (PLANES * SIZE * SIZE - 1) / SceneScanner.TILES_PER_SLICE;
+		assertEquals(expectedSlices, slices);
+		assertFalse(scanner.isScanning());
+		assertEquals(2, seen.size());
+		assertTrue(seen.contains(obstacle));
+		assertTrue(seen.contains(ground));
+	}
+
+	@Test
+	public void testCancel()
+	{
+		Tile[][][] tiles = new Tile[1][SIZE][SIZE];
+		List<TileObject> seen = new ArrayList<>();
+		SceneScanner scanner = new SceneScanner(new EventBus(), seen::add);
+		scanner.start(tiles);
+
+		scanner.cancel();
+
+		assertFalse(scanner.isScanning());
+		assertFalse(scanner.scanSlice(SceneScanner.TILES_PER_SLICE));
+	}
+}
@@ -0,0 +1,69 @@
+package com.marksofgracecooldown;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class SessionTrackerTest
+{
+	private static final long START = 1_600_000_000_000L;
+	private static final long MINUTE = SessionTracker.BUCKET_MILLIS;
+
+	@Test
+	public void testNoRatesUntilMinimumWindow()
+	{
+		SessionTracker session = new SessionTracker();
+		assertEquals(-1, session.getMarksPerHour(START), 0);
+
+		session.recordMarks(START, 1);
+		assertEquals(-1, session.getMarksPerHour(START + 30_000), 0);
+	}
+
+	@Test
+	public void testRatesOverPartialWindow()
+	{
+		SessionTracker session = new SessionTracker();
+		// 10 minutes: a lap and 550 XP every minute, a mark every other minute
+		for (int minute = 0; minute < 10; minute++)
+		{
+			long t = START + minute * MINUTE;
+			session.recordLap(t);
+			session.recordXp(t, 550);
+			if (minute % 2 == 0)
+			{
+				session.recordMarks(t, 1);
+			}
+			session.recordWaiting(t, 6_000);
+		}
+
+		long now = START + 10 * MINUTE;
+		assertEquals(30.0, session.getMarksPerHour(now), 1e-9);
+		assertEquals(60.0, session.getLapsPerHour(now), 1e-9);
+		assertEquals(33_000.0, session.getXpPerHour(now), 1e-9);
+		assertEquals(0.1, session.getWaitingFraction(now), 1e-9);
+	}
+
+	@Test
+	public void testOldEventsSlideOutOfWindow()
+	{
+		SessionTracker session = new SessionTracker();
+		session.recordMarks(START, 5);
+		session.recordMarks(START + 90 * MINUTE, 1);
+
+		// Only the recent mark is inside the one-hour window
+		long now = START + 120 * MINUTE;
+		assertEquals(1.0, session.getMarksPerHour(now), 0.05);
+
+		// Nothing at all in the last hour
+		assertEquals(0.0, session.getMarksPerHour(START + 300 * MINUTE), 0);
+	}
+
+	@Test
+	public void testReset()
+	{
+		SessionTracker session = new SessionTracker();
+		session.recordMarks(START, 3);
+		session.reset();
+
+		assertEquals(-1, session.getMarksPerHour(START + 10 * MINUTE), 0);
+	}
+}
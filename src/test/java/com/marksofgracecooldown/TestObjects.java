@@ -0,0 +1,87 @@
+package com.marksofgracecooldown;
+
+import java.lang.reflect.Proxy;
+import net.runelite.api.GameObject;
+import net.runelite.api.GameState;
+import net.runelite.api.GroundObject;
+import net.runelite.api.Tile;
+import net.runelite.api.TileObject;
+import net.runelite.api.events.GameObjectDespawned;
+import net.runelite.api.events.GameObjectSpawned;
+import net.runelite.api.events.GameStateChanged;
+
+/**
+ * Scene object fixtures shared by the tests.
+ */
+final class TestObjects
+{
+	private TestObjects()
+	{
+	}
+
+	/**
+	 * Proxy-backed object with the given id, so tests do not depend on the full TileObject interface
+	 * surface. Equality is identity; every other method returns null.
+	 */
+	static <T extends TileObject> T tileObject(Class<T> type, int id)
+	{
+		final Integer boxedId = id;
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+			(proxy, method, args) ->
+			{
+				switch (method.getName())
+				{
+					case "getId":
+						return boxedId;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						return null;
+				}
+			}));
+	}
+
+	static Tile tile(GameObject[] gameObjects, GroundObject groundObject)
+	{
+		return (Tile) Proxy.newProxyInstance(Tile.class.getClassLoader(), new Class<?>[]{Tile.class},
+			(proxy, method, args) ->
+			{
+				switch (method.getName())
+				{
+					case "getGameObjects":
+						return gameObjects;
+					case "getGroundObject":
+						return groundObject;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						return null;
+				}
+			});
+	}
+
+	static GameObjectSpawned spawned(GameObject object)
+	{
+		GameObjectSpawned event = new GameObjectSpawned();
+		event.setGameObject(object);
+		return event;
+	}
+
+	static GameObjectDespawned despawned(GameObject object)
+	{
+		GameObjectDespawned event = new GameObjectDespawned();
+		event.setGameObject(object);
+		return event;
+	}
+
+	static GameStateChanged gameState(GameState state)
+	{
+		GameStateChanged event = new GameStateChanged();
+		event.setGameState(state);
+		return event;
+	}
+}
@@ -0,0 +1,50 @@
+package com.marksofgracecooldown;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class TimeTextTest
+{
+	@Test
+	public void testMinutesSecondsMatchesFormat()
+	{
+		for (long seconds = 0; seconds < 2 * TimeText.SECONDS_PER_HOUR; seconds++)
+		{
+			String expected = String.format("%d:%02d", (seconds % 3600) / 60, seconds % 60);
+			assertEquals(expected, TimeText.minutesSeconds(seconds));
+		}
+		assertEquals("0:00", TimeText.minutesSeconds(0));
+		assertEquals("3:00", TimeText.minutesSeconds(180));
+		assertEquals("59:59", TimeText.minutesSeconds(3599));
+	}
+
+	@Test
+	public void testMinutesSecondsFromTable()
+	{
+		assertSame(TimeText.minutesSeconds(75), TimeText.minutesSeconds(75));
+	}
+
+	@Test
+	public void testMillis()
+	{
+		assertEquals("0ms", TimeText.millis(0));
+		assertEquals("42ms", TimeText.millis(42));
+		assertEquals("999ms", TimeText.millis(999));
+		assertEquals("1500ms", TimeText.millis(1500));
+		assertEquals("-1ms", TimeText.millis(-1));
+		assertSame(TimeText.millis(42), TimeText.millis(42));
+	}
+
+	@Test
+	public void testSignedMillis()
+	{
+		assertEquals("+0ms", TimeText.signedMillis(0));
+		assertEquals("+42ms", TimeText.signedMillis(42));
+		assertEquals("-7ms", TimeText.signedMillis(-7));
+		assertEquals("-999ms", TimeText.signedMillis(-999));
+		assertEquals("+999ms", TimeText.signedMillis(999));
+		assertEquals("+1000ms", TimeText.signedMillis(1000));
+		assertEquals("-2500ms", TimeText.signedMillis(-2500));
+	}
+}
@@ -0,0 +1,78 @@
+package com.marksofgracecooldown.ntp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class MonotonicClockTest
+{
+	@Test
+	public void testAdvancesOnNanoSourceOnly()
+	{
+		long[] wallMillis = {1_600_000_000_000L};
+		long[] nanos = {5_000_000_000L};
+		MonotonicClock clock = new MonotonicClock(() -> wallMillis[0], () -> nanos[0]);
+
+		assertEquals(1_600_000_000_000L, clock.millis());
+
+		nanos[0] += 1_500_000_000L;
+		assertEquals(1_600_000_001_500L, clock.millis());
+
+		// A wall-clock step after anchoring is ignored
+		wallMillis[0] -= 3_600_000L;
+		assertEquals(1_600_000_001_500L, clock.millis());
+	}
+
+	@Test
+	public void testSubMillisecondNanosTruncate()
+	{
+		long[] nanos = {0};
+		MonotonicClock clock = new MonotonicClock(() -> 1000L, () -> nanos[0]);
+
+		nanos[0] = 999_999;
+		assertEquals(1000L, clock.millis());
+		nanos[0] = 1_000_000;
+		assertEquals(1001L, clock.millis());
+	}
+
+	@Test
+	public void testReanchorAfterSuspend()
+	{
+		long[] wallMillis = {1_600_000_000_000L};
+		long[] nanos = {0};
+		MonotonicClock clock = new MonotonicClock(() -> wallMillis[0], () -> nanos[0]);
+
+		// Asleep for an hour: the wall clock moves on, the nanosecond source does not
+		wallMillis[0] += 3_600_000L;
+		assertEquals(1_600_000_000_000L, clock.millis());
+
+		assertTrue(clock.reanchor(1000));
+		assertEquals(1_600_003_600_000L, clock.millis());
+
+		nanos[0] += 2_000_000L;
+		assertEquals(1_600_003_600_002L, clock.millis());
+	}
+
+	@Test
+	public void testReanchorIgnoresSmallDrift()
+	{
+		long[] wallMillis = {1_600_000_000_000L};
+		long[] nanos = {0};
+		MonotonicClock clock = new MonotonicClock(() -> wallMillis[0], () -> nanos[0]);
+
+		wallMillis[0] += 1000;
+		assertFalse(clock.reanchor(1000));
+		assertEquals(1_600_000_000_000L, clock.millis());
+
+		wallMillis[0] -= 2001;
+		assertTrue(clock.reanchor(1000));
+		assertEquals(1_599_999_998_999L, clock.millis());
+	}
+
+	@Test
+	public void testSystemClockTracksWallClock()
+	{
+		assertTrue(Math.abs(MonotonicClock.SYSTEM.millis() - System.currentTimeMillis()) < 1000);
+	}
+}
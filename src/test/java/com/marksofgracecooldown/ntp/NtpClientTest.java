@@ -1,5 +1,12 @@
 package com.marksofgracecooldown.ntp;
 
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -8,6 +15,12 @@ import org.junit.Test;
 
 public class NtpClientTest
 {
+	private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r ->
+	{
+		Thread thread = new Thread(r, "NtpClientTest");
+		thread.setDaemon(true);
+		return thread;
+	});
 
 	@BeforeClass
 	public static void setUpClass()
@@ -44,7 +57,7 @@ public class NtpClientTest
 	public void testStartSyncDoesNotBlock()
 	{
 		long startTime = System.currentTimeMillis();
-		NtpClient.startSync();
+		NtpClient.startSync(executor);
 		long elapsed = System.currentTimeMillis() - startTime;
 
 		assertTrue("startSync should be non-blocking", elapsed < 100);
@@ -53,14 +66,62 @@ public class NtpClientTest
 	@Test
 	public void testMultipleStartSyncCalls()
 	{
-		NtpClient.startSync();
-		NtpClient.startSync();
-		NtpClient.startSync();
+		NtpClient.startSync(executor);
+		NtpClient.startSync(executor);
+		NtpClient.startSync(executor);
 
 		NtpSyncState state = NtpClient.getSyncState();
 		assertNotNull(state);
 	}
 
+	@Test
+	public void testRestartWhileSyncRunningStartsOnNewExecutor() throws Exception
+	{
+		// The old executor is busy, so the sync it was given is still pending when the plugin restarts
+		CountDownLatch release = new CountDownLatch(1);
+		ScheduledExecutorService oldExecutor = Executors.newSingleThreadScheduledExecutor();
+		AtomicInteger started = new AtomicInteger();
+		ScheduledExecutorService newExecutor = new ScheduledThreadPoolExecutor(1)
+		{
+			@Override
+			public void execute(Runnable command)
+			{
+				started.incrementAndGet();
+			}
+		};
+		try
+		{
+			oldExecutor.execute(() ->
+			{
+				try
+				{
+					release.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			});
+			NtpClient.startSync(oldExecutor);
+			NtpClient.stopSync();
+
+			NtpClient.startSync(newExecutor);
+			assertEquals(1, started.get());
+
+			// Repeated starts on the same executor while its sync runs are still ignored
+			NtpClient.startSync(newExecutor);
+			assertEquals(1, started.get());
+		}
+		finally
+		{
+			NtpClient.stopSync();
+			release.countDown();
+			oldExecutor.shutdown();
+			assertTrue(oldExecutor.awaitTermination(5, TimeUnit.SECONDS));
+			newExecutor.shutdownNow();
+		}
+	}
+
 	/**
 	 * The NTP packet (SNTP, RFC 4330) is 48 bytes:
 	 * Bytes  0- 3: LI/VN/Mode, Stratum, Poll, Precision
@@ -164,4 +225,64 @@ public class NtpClientTest
 		long offset = NtpClient.getSyncedOffsetMillis();
 		assertEquals("syncedOffsetMillis should be 0 after reset", 0L, offset);
 	}
+
+	@Test
+	public void testWriteNtpTimestamp_roundTrip()
+	{
+		byte[] data = new byte[48];
+		long ntpMillis = 3825073266_500L;
+		NtpClient.writeNtpTimestamp(data, 40, ntpMillis);
+
+		assertEquals(ntpMillis, NtpClient.parseNtpTimestamp(data, 40));
+	}
+
+	@Test
+	public void testParseResponse_usesAllFourTimestamps() throws Exception
+	{
+		long t1 = 3825073266_000L;
+		byte[] request = new byte[48];
+		NtpClient.writeRequest(request, t1);
+
+		byte[] response = serverReply(request, t1 + 130, t1 + 135);
+		NtpSample sample = NtpClient.parseResponse("test", request, response, 48, t1, t1 + 60);
+
+		// Offset = ((130) + (135 - 60)) / 2, delay = 60 - 5
+		assertEquals(102, sample.getOffsetMillis());
+		assertEquals(55, sample.getDelayMillis());
+	}
+
+	@Test(expected = IOException.class)
+	public void testParseResponse_rejectsMismatchedOriginate() throws Exception
+	{
+		long t1 = 3825073266_000L;
+		byte[] request = new byte[48];
+		NtpClient.writeRequest(request, t1);
+
+		byte[] response = serverReply(request, t1 + 10, t1 + 11);
+		response[31] ^= 1; // reply to some other request
+		NtpClient.parseResponse("test", request, response, 48, t1, t1 + 20);
+	}
+
+	@Test(expected = IOException.class)
+	public void testParseResponse_rejectsKissOfDeath() throws Exception
+	{
+		long t1 = 3825073266_000L;
+		byte[] request = new byte[48];
+		NtpClient.writeRequest(request, t1);
+
+		byte[] response = serverReply(request, t1 + 10, t1 + 11);
+		response[1] = 0; // stratum 0
+		NtpClient.parseResponse("test", request, response, 48, t1, t1 + 20);
+	}
+
+	private static byte[] serverReply(byte[] request, long receiveNtpMillis, long transmitNtpMillis)
+	{
+		byte[] response = new byte[48];
+		response[0] = 0x1C; // LI = 0, VN = 3, Mode = 4 (server)
+		response[1] = 2; // stratum
+		System.arraycopy(request, 40, response, 24, 8);
+		NtpClient.writeNtpTimestamp(response, 32, receiveNtpMillis);
+		NtpClient.writeNtpTimestamp(response, 40, transmitNtpMillis);
+		return response;
+	}
 }
@@ -0,0 +1,158 @@
+package com.marksofgracecooldown.ntp;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the parallel query path against local UDP stand-in servers.
+ */
+public class NtpQueryChannelTest
+{
+	private static final long SERVER_OFFSET_MILLIS = 250;
+
+	private StandInNtpServer server;
+	private DatagramSocket silentServer;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		server = new StandInNtpServer(SERVER_OFFSET_MILLIS);
+		silentServer = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+	}
+
+	@After
+	public void tearDown()
+	{
+		server.close();
+		silentServer.close();
+	}
+
+	@Test
+	public void testQueryRound_measuresOffsetFromStandInServer() throws Exception
+	{
+		try (NtpQueryChannel channel = new NtpQueryChannel(Collections.singletonList("127.0.0.1"), server.getPort()))
+		{
+			List<NtpSample> samples = channel.queryRound(2000);
+
+			assertEquals(1, samples.size());
+			NtpSample sample = samples.get(0);
+			assertTrue("offset was " + sample.getOffsetMillis(),
+				Math.abs(sample.getOffsetMillis() - SERVER_OFFSET_MILLIS) <= 20);
+			assertTrue("delay was " + sample.getDelayMillis(), sample.getDelayMillis() < 100);
+		}
+	}
+
+	@Test
+	public void testQueryRound_reusesChannelAcrossRounds() throws Exception
+	{
+		try (NtpQueryChannel channel = new NtpQueryChannel(Collections.singletonList("127.0.0.1"), server.getPort()))
+		{
+			for (int i = 0; i < 3; i++)
+			{
+				assertEquals(1, channel.queryRound(2000).size());
+			}
+		}
+	}
+
+	@Test
+	public void testQueryRound_silentServerCostsOneTimeout() throws Exception
+	{
+		// Neither host answers; the round ends at the shared timeout rather than one per host
+		try (NtpQueryChannel channel = new NtpQueryChannel(Arrays.asList("localhost", "127.0.0.1"), silentServer.getLocalPort()))
+		{
+			long start = System.nanoTime();
+			List<NtpSample> samples = channel.queryRound(300);
+			long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+			assertTrue(samples.isEmpty());
+			assertTrue("round took " + elapsedMillis + "ms", elapsedMillis < 1000);
+		}
+	}
+
+	@Test
+	public void testQueryRound_keepsReplyWhenOtherHostTimesOut() throws Exception
+	{
+		// One host answers, one never does (nothing listens on 127.0.0.2); the reply is kept and
+		// the round still ends at the shared timeout
+		try (NtpQueryChannel channel = new NtpQueryChannel(Arrays.asList("127.0.0.2", "127.0.0.1"), server.getPort()))
+		{
+			long start = System.nanoTime();
+			List<NtpSample> samples = channel.queryRound(300);
+			long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+			assertEquals(1, samples.size());
+			NtpSample sample = samples.get(0);
+			assertEquals("127.0.0.1", sample.getHost());
+			assertTrue("offset was " + sample.getOffsetMillis(),
+				Math.abs(sample.getOffsetMillis() - SERVER_OFFSET_MILLIS) <= 20);
+			assertTrue("round took " + elapsedMillis + "ms", elapsedMillis < 1000);
+		}
+	}
+
+	/**
+	 * Minimal SNTP server whose clock runs {@code offsetMillis} ahead of the local clock.
+	 */
+	private static final class StandInNtpServer implements Runnable
+	{
+		private final DatagramSocket socket;
+		private final long offsetMillis;
+		private final Thread thread;
+
+		StandInNtpServer(long offsetMillis) throws SocketException
+		{
+			this.offsetMillis = offsetMillis;
+			this.socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+			this.thread = new Thread(this, "StandInNtpServer");
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+
+		int getPort()
+		{
+			return socket.getLocalPort();
+		}
+
+		@Override
+		public void run()
+		{
+			byte[] buffer = new byte[48];
+			while (!socket.isClosed())
+			{
+				try
+				{
+					DatagramPacket request = new DatagramPacket(buffer, buffer.length);
+					socket.receive(request);
+					long receive = NtpClient.currentNtpMillis() + offsetMillis;
+
+					byte[] reply = new byte[48];
+					reply[0] = 0x1C; // LI = 0, VN = 3, Mode = 4 (server)
+					reply[1] = 2; // stratum
+					System.arraycopy(buffer, 40, reply, 24, 8);
+					NtpClient.writeNtpTimestamp(reply, 32, receive);
+					NtpClient.writeNtpTimestamp(reply, 40, NtpClient.currentNtpMillis() + offsetMillis);
+					socket.send(new DatagramPacket(reply, reply.length, request.getSocketAddress()));
+				}
+				catch (IOException e)
+				{
+					// socket closed
+				}
+			}
+		}
+
+		void close()
+		{
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package com.marksofgracecooldown.ntp;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class NtpSampleFilterTest
+{
+	@Test
+	public void testFourTimestampOffsetAndDelay()
+	{
+		// Client clock 100ms behind the server, 20ms each way, 5ms server processing
+		long t1 = 1_000_000;
+		long t2 = t1 + 20 + 100;
+		long t3 = t2 + 5;
+		long t4 = t3 + 20 - 100;
+
+		NtpSample sample = NtpSample.fromTimestamps("a", t1, t2, t3, t4);
+
+		assertEquals(100, sample.getOffsetMillis());
+		assertEquals("Server processing time must not count as network delay", 40, sample.getDelayMillis());
+	}
+
+	@Test
+	public void testBestPerHostKeepsMinimumDelay()
+	{
+		List<NtpSample> best = NtpSampleFilter.bestPerHost(Arrays.asList(
+			new NtpSample("a", 30, 80),
+			new NtpSample("a", 12, 20),
+			new NtpSample("b", 15, 40),
+			new NtpSample("a", 50, 120)));
+
+		assertEquals(2, best.size());
+		assertEquals(12, best.get(0).getOffsetMillis());
+		assertEquals(15, best.get(1).getOffsetMillis());
+	}
+
+	@Test
+	public void testRejectOutliers_dropsFalseticker()
+	{
+		List<NtpSample> survivors = NtpSampleFilter.rejectOutliers(Arrays.asList(
+			new NtpSample("a", 10, 20),
+			new NtpSample("b", 14, 30),
+			new NtpSample("c", 900, 25)));
+
+		assertEquals(2, survivors.size());
+		assertTrue(survivors.stream().noneMatch(s -> s.getHost().equals("c")));
+	}
+
+	@Test
+	public void testRejectOutliers_needsMajority()
+	{
+		// With only two servers there is no way to tell which one is wrong
+		List<NtpSample> samples = Arrays.asList(new NtpSample("a", 10, 20), new NtpSample("b", 900, 20));
+		assertEquals(samples, NtpSampleFilter.rejectOutliers(samples));
+	}
+
+	@Test
+	public void testCombine_weightsLowDelayServers()
+	{
+		Long offset = NtpSampleFilter.combine(Arrays.asList(
+			new NtpSample("a", 10, 0),
+			new NtpSample("b", 40, 99)));
+
+		// Weights 1 and 1/100: result stays close to the low-delay server
+		assertEquals(Long.valueOf(10), offset);
+	}
+
+	@Test
+	public void testCombine_noSamples()
+	{
+		assertNull(NtpSampleFilter.combine(Collections.emptyList()));
+	}
+}